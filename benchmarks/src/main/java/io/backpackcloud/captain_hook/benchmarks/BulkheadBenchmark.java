@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.impl.Bulkhead;
+import io.backpackcloud.captain_hook.impl.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to deliver a burst of notifications to a slow endpoint,
+ * simulated by a sleep, comparing a pool of platform threads sized like the Vert.x worker
+ * pool against virtual threads with one thread per delivery.
+ * <p>
+ * The virtual mode needs a JVM with virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkheadBenchmark {
+
+  // the default size of the Vert.x worker pool
+  static final int WORKERS = 20;
+  static final long LATENCY = 50;
+
+  @Param({"platform", "virtual"})
+  String threads;
+
+  @Param({"100", "1000", "10000"})
+  int deliveries;
+
+  Bulkhead bulkhead;
+
+  @Setup
+  public void setup() {
+    if ("virtual".equals(threads)) {
+      ChannelSettings settings = new ChannelSettings(null, deliveries, null);
+      bulkhead = Bulkhead.virtual("bench", settings, VirtualThreads.factory("bench-")
+          .orElseThrow(() -> new IllegalStateException("This JVM doesn't support virtual threads")), deliveries);
+    } else {
+      bulkhead = new Bulkhead("bench", new ChannelSettings(WORKERS, deliveries, null));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    bulkhead.shutdown();
+  }
+
+  @Benchmark
+  public void deliver() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(deliveries);
+    for (int i = 0; i < deliveries; i++) {
+      bulkhead.execute(() -> {
+        try {
+          Thread.sleep(LATENCY);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      });
+    }
+    done.await();
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.impl.UnirestCannon;
+import io.backpackcloud.captain_hook.impl.VertxCannon;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cannon firing rendered payloads against a local stub server that
+ * discards the body and answers with 204.
+ * <p>
+ * The burst benchmark fires many payloads without waiting for each response, which
+ * shows how many deliveries each client can keep in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CannonBenchmark {
+
+  static final int BURST = 100;
+
+  @Param({"unirest", "vertx"})
+  String client;
+
+  HttpServer server;
+  Vertx vertx;
+  ExecutorService executor;
+  Cannon cannon;
+  Notification notification;
+  String url;
+  Map<String, ?> headers;
+  Map<String, ?> payload;
+
+  @Setup
+  public void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      try (InputStream body = exchange.getRequestBody()) {
+        body.transferTo(OutputStream.nullOutputStream());
+      }
+      exchange.sendResponseHeaders(204, -1);
+      exchange.close();
+    });
+    executor = Executors.newFixedThreadPool(16);
+    server.setExecutor(executor);
+    server.start();
+
+    TemplateEngine templateEngine = Fixtures.templateEngine();
+    if ("vertx".equals(client)) {
+      vertx = Vertx.vertx();
+      cannon = new VertxCannon(vertx, Fixtures.serializer(templateEngine), templateEngine);
+    } else {
+      cannon = new UnirestCannon(Fixtures.serializer(templateEngine), templateEngine);
+    }
+    notification = new Notification(Fixtures.event(1), Address.fromString("http:someone"), Priority.NORMAL);
+
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/${target}";
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put("Authorization", "Bearer some-static-token");
+    headers.put("X-Priority", "${priority}");
+    this.headers = templateEngine.compile(headers);
+
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("chat_id", "${target}");
+    payload.put("text", "${(title)!} - ${message}");
+    payload.put("labels", "${labels.project}");
+    this.payload = templateEngine.compile(payload);
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+    executor.shutdownNow();
+    if (vertx != null) vertx.close();
+  }
+
+  @Benchmark
+  public int fire() {
+    return cannon.load(notification)
+        .add(headers)
+        .aimAt(url)
+        .fire(payload)
+        .status();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BURST)
+  public void fireBurst() {
+    CompletableFuture<?>[] responses = new CompletableFuture[BURST];
+    for (int i = 0; i < BURST; i++) {
+      responses[i] = cannon.load(notification)
+          .add(headers)
+          .aimAt(url)
+          .fireAsync(payload)
+          .toCompletableFuture();
+    }
+    CompletableFuture.allOf(responses).join();
+  }
+
+}
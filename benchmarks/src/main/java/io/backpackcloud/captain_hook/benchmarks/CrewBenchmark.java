@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.CaptainHook;
+import io.backpackcloud.captain_hook.Crew;
+import io.backpackcloud.captain_hook.Event;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.Webhook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the crew takes to turn webhooks into events and events into
+ * notifications. Notifications are dropped by a plank that does nothing, so only
+ * the crew's work is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrewBenchmark {
+
+  @Param({"10", "100", "1000", "10000"})
+  int size;
+
+  Crew crew;
+  Event[] events;
+  Webhook[] webhooks;
+  int next;
+
+  @Setup
+  public void setup() {
+    TemplateEngine templateEngine = Fixtures.templateEngine();
+    Serializer serializer = Fixtures.serializer(templateEngine);
+    CaptainHook captainHook = Fixtures.captainHook(size);
+
+    crew = new Crew(captainHook, templateEngine, notification -> {});
+
+    events = new Event[Fixtures.EVENT_NAMES * 2];
+    for (int i = 0; i < events.length; i++) {
+      events[i] = Fixtures.event(i);
+    }
+
+    webhooks = new Webhook[16];
+    for (int i = 0; i < webhooks.length; i++) {
+      webhooks[i] = new Webhook(Fixtures.webhookLabels(i * (size / webhooks.length)),
+          serializer.json().deserialize(Fixtures.webhookPayload(3)));
+    }
+  }
+
+  @Benchmark
+  public List<Notification> handleEvent() {
+    return crew.handle(events[next++ % events.length]);
+  }
+
+  @Benchmark
+  public List<Event> handleWebhook() {
+    return crew.handle(webhooks[next++ % webhooks.length]);
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Plank;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.impl.NotificationCodec;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of walking notifications through the event bus.
+ * <p>
+ * The "sender" mode is how notifications used to walk: a new producer for each
+ * notification and a codec looked up by the type of the notification. The "codec" mode
+ * sends through the named codec with shared delivery options. The wire benchmark shows
+ * the cost of encoding and decoding a notification in clustered mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+
+  static final int MESSAGES = 1000;
+
+  @Param({"sender", "codec"})
+  String mode;
+
+  Vertx vertx;
+  EventBus eventBus;
+  DeliveryOptions options;
+  NotificationCodec codec;
+  Notification notification;
+  volatile CountDownLatch received;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    eventBus = vertx.eventBus();
+    codec = new NotificationCodec();
+    if ("sender".equals(mode)) {
+      eventBus.registerDefaultCodec(Notification.class, codec);
+    } else {
+      eventBus.registerCodec(codec);
+      options = new DeliveryOptions().setCodecName(NotificationCodec.NAME);
+    }
+    eventBus.<Notification>consumer(Plank.NOTIFICATION_WALKED, message -> received.countDown());
+    notification = new Notification(Fixtures.event(1), Address.fromString("http:someone"), Priority.NORMAL);
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void walk() throws InterruptedException {
+    received = new CountDownLatch(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      if (options == null) {
+        eventBus.sender(Plank.NOTIFICATION_WALKED).write(notification);
+      } else {
+        eventBus.send(Plank.NOTIFICATION_WALKED, notification, options);
+      }
+    }
+    received.await();
+  }
+
+  @Benchmark
+  public Notification wire() {
+    Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, notification);
+    return codec.decodeFromWire(0, buffer);
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.CaptainHook;
+import io.backpackcloud.captain_hook.Event;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.Selector;
+import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.Subscription;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.Transmitter;
+import io.backpackcloud.captain_hook.WebhookMapping;
+import io.backpackcloud.captain_hook.cdi.SerializerProducer;
+import io.backpackcloud.captain_hook.impl.FreemarkerTemplateEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the components and the data shared by the benchmarks, wired the same way the
+ * application wires them but without any container.
+ */
+public final class Fixtures {
+
+  /**
+   * How many different event names the generated configurations use.
+   */
+  public static final int EVENT_NAMES = 50;
+
+  // JUL keeps weak references to its loggers, so this one must be held
+  private static final Logger LOGGER = Logger.getLogger("io.backpackcloud.captain_hook");
+
+  static {
+    // the crew logs every webhook and event, which would be measured as well
+    System.setProperty("org.jboss.logging.provider", "jdk");
+    LOGGER.setLevel(Level.WARNING);
+  }
+
+  private Fixtures() {
+
+  }
+
+  public static TemplateEngine templateEngine() {
+    Configuration cfg = new Configuration(Configuration.VERSION_2_3_29);
+    cfg.setObjectWrapper(new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_29).build());
+    return new FreemarkerTemplateEngine(cfg, 1024);
+  }
+
+  public static Serializer serializer(TemplateEngine templateEngine) {
+    return serializer(templateEngine, false);
+  }
+
+  public static Serializer serializer(TemplateEngine templateEngine, boolean afterburner) {
+    return new SerializerProducer(afterburner).get(templateEngine, null, null, notification -> {});
+  }
+
+  /**
+   * Creates a configuration with the given number of subscriptions and webhook mappings.
+   * Every subscription and mapping selects on the labels produced by {@link #event(int)}
+   * and {@link #webhookLabels(int)}, so lookups hit a realistic mix of matches and misses.
+   *
+   * @param size the number of subscriptions and webhook mappings
+   * @return the configuration
+   */
+  public static CaptainHook captainHook(int size) {
+    List<Subscription> subscriptions = new ArrayList<>(size);
+    List<WebhookMapping> webhooks = new ArrayList<>(size);
+    Map<String, Transmitter> transmitters = new HashMap<>();
+
+    transmitters.put("void", notification -> {});
+
+    for (int i = 0; i < size; i++) {
+      Map<String, String> selector = new HashMap<>();
+      selector.put("project", "project-" + (i % 100));
+      selector.put("ref", i % 3 == 0 ? "*" : "master | develop");
+      subscriptions.add(new Subscription(Selector.from(selector),
+          i % 2 == 0 ? "event-" + (i % EVENT_NAMES) : null,
+          Address.fromString("void:target-" + i),
+          Priority.NORMAL));
+
+      Map<String, String> labels = new HashMap<>();
+      labels.put("project", "${project.name}");
+      labels.put("ref", "${ref}");
+      webhooks.add(new WebhookMapping(
+          Selector.from(Collections.singletonMap("X-Source", "source-" + i)),
+          new Event(LabelSet.of(labels),
+              "event-" + (i % EVENT_NAMES),
+              "${total_commits_count} commits pushed by ${user_name}",
+              "New push - ${project.name}",
+              "${project.web_url}")));
+    }
+
+    return new CaptainHook(subscriptions, webhooks, transmitters);
+  }
+
+  public static Event event(int seed) {
+    Map<String, String> labels = new HashMap<>();
+    labels.put("project", "project-" + (seed % 100));
+    labels.put("ref", seed % 2 == 0 ? "master" : "feature");
+    labels.put("user", "user-" + seed);
+    return new Event(LabelSet.of(labels), "event-" + (seed % EVENT_NAMES), "message " + seed, "title", null);
+  }
+
+  public static LabelSet webhookLabels(int seed) {
+    Map<String, String> labels = new HashMap<>();
+    labels.put("X-Source", "source-" + seed);
+    labels.put("Content-Type", "application/json");
+    labels.put("User-Agent", "benchmark");
+    return LabelSet.of(labels);
+  }
+
+  /**
+   * Returns a push webhook payload, similar to the ones sent by GitLab, as JSON.
+   *
+   * @param commits the number of commits in the payload
+   * @return the JSON payload
+   */
+  public static String webhookPayload(int commits) {
+    StringBuilder json = new StringBuilder()
+        .append("{\"object_kind\":\"push\",\"ref\":\"master\",\"user_name\":\"Captain Hook\",")
+        .append("\"total_commits_count\":").append(commits).append(',')
+        .append("\"project\":{\"name\":\"project-1\",\"web_url\":\"https://example.com/project-1\"},")
+        .append("\"commits\":[");
+    for (int i = 0; i < commits; i++) {
+      if (i > 0) json.append(',');
+      json.append("{\"id\":\"").append(Integer.toHexString(i * 7919))
+          .append("\",\"message\":\"Commit number ").append(i)
+          .append("\",\"author\":{\"name\":\"Pirate ").append(i % 10)
+          .append("\",\"email\":\"pirate").append(i % 10).append("@example.com\"}}");
+    }
+    return json.append("]}").toString();
+  }
+
+}
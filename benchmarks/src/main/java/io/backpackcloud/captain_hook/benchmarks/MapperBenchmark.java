@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.Event;
+import io.backpackcloud.captain_hook.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the serialization of webhook payloads of different sizes, with and without
+ * afterburner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+  @Param({"1", "20", "500"})
+  int commits;
+
+  @Param({"false", "true"})
+  boolean afterburner;
+
+  // the fields a typical push mapping uses
+  static final Set<String> FIELDS = new HashSet<>(Arrays.asList("ref", "user_name", "project", "total_commits_count"));
+
+  Serializer serializer;
+  String json;
+  byte[] jsonBytes;
+  String xml;
+  Map<String, ?> data;
+  Event event;
+  String eventJson;
+
+  @Setup
+  public void setup() {
+    serializer = Fixtures.serializer(Fixtures.templateEngine(), afterburner);
+    json = Fixtures.webhookPayload(commits);
+    jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+    xml = serializer.xml().serialize(serializer.json().deserialize(json));
+    data = serializer.json().deserialize(json);
+    event = Fixtures.event(1);
+    eventJson = serializer.json().serialize(event);
+  }
+
+  @Benchmark
+  public Map<String, ?> deserializeJson() {
+    return serializer.json().deserialize(json);
+  }
+
+  @Benchmark
+  public Map<String, ?> deserializeJsonBytes() {
+    return serializer.json().deserialize(jsonBytes);
+  }
+
+  @Benchmark
+  public Map<String, ?> deserializeJsonStream() {
+    return serializer.json().deserialize(new ByteArrayInputStream(jsonBytes));
+  }
+
+  @Benchmark
+  public Map<String, ?> deserializeJsonStreamFiltered() {
+    try (Stream<Map<String, ?>> payloads = serializer.json()
+        .deserializeAll(new ByteArrayInputStream(jsonBytes), FIELDS::contains)) {
+      return payloads.findFirst().orElse(null);
+    }
+  }
+
+  @Benchmark
+  public Map<String, ?> deserializeXml() {
+    return serializer.xml().deserialize(xml);
+  }
+
+  @Benchmark
+  public String serializeJson() {
+    return serializer.json().serialize(serializer.json().deserialize(json));
+  }
+
+  @Benchmark
+  public String serializeJsonString() {
+    return serializer.json().serialize(data);
+  }
+
+  @Benchmark
+  public byte[] serializeJsonBytes() {
+    return serializer.json().serializeAsBytes(data);
+  }
+
+  @Benchmark
+  public String serializeEvent() {
+    return serializer.json().serialize(event);
+  }
+
+  @Benchmark
+  public Event deserializeEvent() {
+    return serializer.json().deserialize(eventJson, Event.class);
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Selector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled {@link Selector} against the chain of predicates it replaced.
+ * <p>
+ * Every selector accepts the label set, so all of its rules are evaluated. Run it with
+ * {@code -prof gc} to see the allocation rate of each one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorBenchmark {
+
+  @Param({"1", "4", "16", "64"})
+  int size;
+
+  Selector compiled;
+  ChainedSelector chained;
+  LabelSet labels;
+
+  @Setup
+  public void setup() {
+    Map<String, String> rules = new HashMap<>();
+    Map<String, String> values = new HashMap<>();
+
+    for (int i = 0; i < size; i++) {
+      String label = "label" + i;
+      String value = "value" + i;
+      values.put(label, value);
+
+      // mixes every kind of rule
+      switch (i % 4) {
+        case 0:
+          rules.put(label, value);
+          break;
+        case 1:
+          rules.put(label, "other | another | " + value);
+          break;
+        case 2:
+          rules.put(label, "*");
+          break;
+        default:
+          rules.put(label, "!other");
+      }
+    }
+
+    compiled = Selector.from(rules);
+    chained = ChainedSelector.from(rules);
+    labels = LabelSet.of(values);
+  }
+
+  @Benchmark
+  public boolean compiled() {
+    return compiled.test(labels);
+  }
+
+  @Benchmark
+  public boolean chained() {
+    return chained.test(labels);
+  }
+
+}
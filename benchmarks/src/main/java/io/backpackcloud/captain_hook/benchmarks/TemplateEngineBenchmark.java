@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.benchmarks;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.impl.PayloadWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateEngineBenchmark {
+
+  static final String TEMPLATE = "[${priority}] ${(title)!} - ${message} (${labels.project})";
+  static final String LITERAL = "Bearer some-static-token";
+
+  TemplateEngine templateEngine;
+  Serializer serializer;
+  PayloadWriter payloadWriter;
+  TemplateEngine.CompiledTemplate compiled;
+  Map<String, ?> payload;
+  Map compiledPayload;
+  Map<String, ?> context;
+
+  @Setup
+  public void setup() {
+    templateEngine = Fixtures.templateEngine();
+    compiled = templateEngine.compile(TEMPLATE);
+    serializer = Fixtures.serializer(templateEngine);
+    payloadWriter = new PayloadWriter(templateEngine, serializer.json());
+
+    Map<String, Object> payload = new HashMap<>();
+    Map<String, Object> nested = new HashMap<>();
+    payload.put("chat_id", "${target}");
+    payload.put("text", TEMPLATE);
+    payload.put("parse_mode", "Markdown");
+    nested.put("url", "${(url)!}");
+    nested.put("source", "captain-hook");
+    payload.put("extra", nested);
+    this.payload = payload;
+    this.compiledPayload = templateEngine.compile(payload);
+
+    context = new Notification(Fixtures.event(1), Address.fromString("void:someone"), Priority.HIGH).context();
+  }
+
+  @Benchmark
+  public String evaluate() {
+    return templateEngine.evaluate(TEMPLATE, context);
+  }
+
+  @Benchmark
+  public String evaluateCompiled() {
+    return compiled.evaluate(context);
+  }
+
+  @Benchmark
+  public String evaluateLiteral() {
+    return templateEngine.evaluate(LITERAL, context);
+  }
+
+  @Benchmark
+  public Map evaluatePayload() {
+    return templateEngine.evaluate(payload, context);
+  }
+
+  @Benchmark
+  public Map evaluateCompiledPayload() {
+    return templateEngine.evaluate(compiledPayload, context);
+  }
+
+  @Benchmark
+  public String serializeCompiledPayload() {
+    return serializer.json().serialize(templateEngine.evaluate(compiledPayload, context));
+  }
+
+  @Benchmark
+  public byte[] renderCompiledPayload() {
+    return payloadWriter.render(compiledPayload, context);
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Defines how notifications going to the same url are gathered to be fired together in
+ * a single request.
+ */
+@RegisterForReflection
+public class BatchSettings {
+
+  private final int maxSize;
+  private final Duration maxLinger;
+
+  @JsonCreator
+  public BatchSettings(@JsonProperty("max_size") Integer maxSize,
+                       @JsonProperty("max_linger") Long maxLinger) {
+    this.maxSize = Optional.ofNullable(maxSize).orElse(100);
+    this.maxLinger = Duration.ofMillis(Optional.ofNullable(maxLinger).orElse(1000L));
+
+    if (this.maxSize < 1) {
+      throw new UnbelievableException("The maximum size of a batch should be positive");
+    }
+    if (this.maxLinger.isNegative() || this.maxLinger.isZero()) {
+      throw new UnbelievableException("The maximum linger of a batch should be positive");
+    }
+  }
+
+  /**
+   * Returns how many notifications are fired together at most.
+   *
+   * @return the maximum size of a batch.
+   */
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns how long the first notification of a batch waits for the others.
+   *
+   * @return the maximum time a batch stays open.
+   */
+  public Duration maxLinger() {
+    return maxLinger;
+  }
+
+}
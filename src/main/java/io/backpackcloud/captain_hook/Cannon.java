@@ -24,7 +24,10 @@
 
 package io.backpackcloud.captain_hook;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
 
 /**
@@ -44,15 +47,41 @@ public interface Cannon {
    */
   LoadedCannon load(Notification notification);
 
+  /**
+   * Loads the given notifications so they can be fired together in a single request.
+   * <p>
+   * The payload is evaluated using each notification as a context and the results are
+   * fired as a JSON array. The headers and the url are evaluated using the first
+   * notification as a context.
+   *
+   * @param notifications the notifications to be used as context.
+   * @return a new cannon loaded with the given notifications.
+   */
+  LoadedCannon load(List<Notification> notifications);
+
+  /**
+   * Returns a cannon that fires through its own pool of connections.
+   * <p>
+   * Cannons that can't pool connections will return themselves.
+   *
+   * @param name     the name of the pool
+   * @param settings the settings of the pool
+   * @return a cannon using the given pool settings.
+   */
+  default Cannon withConnection(String name, ConnectionSettings settings) {
+    return this;
+  }
+
   interface LoadedCannon {
 
     /**
-     * Adds the given http headers.
+     * Adds the given http headers. The values can be either a String or a
+     * {@link TemplateEngine.CompiledTemplate}.
      *
      * @param headers the headers to add
      * @return this cannon
      */
-    LoadedCannon add(Map<String, String> headers);
+    LoadedCannon add(Map<String, ?> headers);
 
     /**
      * Sets the url to aim the cannon.
@@ -62,6 +91,14 @@ public interface Cannon {
      */
     ReadyCannon aimAt(String url);
 
+    /**
+     * Sets the url to aim the cannon using an already compiled template.
+     *
+     * @param url the url to aim
+     * @return a cannon ready to fire.
+     */
+    ReadyCannon aimAt(TemplateEngine.CompiledTemplate url);
+
   }
 
   /**
@@ -70,13 +107,33 @@ public interface Cannon {
   interface ReadyCannon {
 
     /**
-     * Fires the given payload.
+     * Fires the given payload. Any String or {@link TemplateEngine.CompiledTemplate}
+     * in the payload will be evaluated before firing.
      *
      * @param payload the payload to fire
      * @return the response
      */
     Response fire(Map<String, ?> payload);
 
+    /**
+     * Fires the given payload without waiting for the response. Any String or
+     * {@link TemplateEngine.CompiledTemplate} in the payload will be evaluated before firing.
+     * <p>
+     * Cannons that can't fire asynchronously will fire the payload before returning.
+     *
+     * @param payload the payload to fire
+     * @return a stage that completes with the response
+     */
+    default CompletionStage<Response> fireAsync(Map<String, ?> payload) {
+      CompletableFuture<Response> result = new CompletableFuture<>();
+      try {
+        result.complete(fire(payload));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+      return result;
+    }
+
   }
 
   /**
@@ -26,13 +26,17 @@ package io.backpackcloud.captain_hook;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddressTransmitter;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * The mind behind everything that happens aboard. The Captain holds the information about
@@ -50,13 +54,55 @@ public class CaptainHook {
 
   private final Map<String, Transmitter> transmitters;
 
+  private final Map<String, ChannelSettings> channels;
+
   @JsonCreator
   public CaptainHook(@JsonProperty("subscriptions") List<Subscription> subscriptions,
                      @JsonProperty("webhooks") List<WebhookMapping> webhooks,
-                     @JsonProperty("transmitters") Map<String, Transmitter> transmitters) {
+                     @JsonProperty("transmitters") Map<String, Transmitter> transmitters,
+                     @JsonProperty("channels") Map<String, ChannelSettings> channels) {
     this.subscriptions = new ArrayList<>(subscriptions);
     this.webhooks = new ArrayList<>(webhooks);
     this.transmitters = new HashMap<>(transmitters);
+    this.channels = channels == null ? new HashMap<>() : new HashMap<>(channels);
+
+    // virtual addresses are resolved here so a cycle stops the ship from sailing
+    this.transmitters.forEach((channel, transmitter) -> {
+      if (transmitter instanceof VirtualAddressTransmitter) {
+        ((VirtualAddressTransmitter) transmitter).flatten(channel, this.transmitters);
+      }
+    });
+    // dead letters leading back to a channel they came from would bounce around forever
+    this.channels.keySet().forEach(channel -> followDeadLetters(channel, new LinkedHashSet<>()));
+  }
+
+  public CaptainHook(List<Subscription> subscriptions,
+                     List<WebhookMapping> webhooks,
+                     Map<String, Transmitter> transmitters) {
+    this(subscriptions, webhooks, transmitters, null);
+  }
+
+  private void followDeadLetters(String channel, Set<String> path) {
+    if (!path.add(channel)) {
+      throw new UnbelievableException("The dead letters of channel " + channel + " come back to it: " +
+          String.join(" -> ", path) + " -> " + channel);
+    }
+    channel(channel).retry()
+        .flatMap(RetrySettings::deadLetter)
+        .ifPresent(address -> channelsOf(address).forEach(next -> followDeadLetters(next, path)));
+    path.remove(channel);
+  }
+
+  // the channels that will actually fire notifications sent to the given address
+  private Set<String> channelsOf(Address address) {
+    Transmitter transmitter = transmitters.get(address.channel());
+    if (transmitter == null) {
+      return Collections.singleton(address.channel());
+    }
+    Notification probe = new Notification(null, "dead letter", null, address, Priority.NORMAL, LabelSet.empty());
+    return transmitter.forward(probe)
+        .<Set<String>>map(addresses -> addresses.stream().map(Address::channel).collect(Collectors.toSet()))
+        .orElse(Collections.singleton(address.channel()));
   }
 
   public List<Subscription> subscriptions() {
@@ -71,4 +117,15 @@ public class CaptainHook {
     return Collections.unmodifiableMap(transmitters);
   }
 
+  /**
+   * Returns the settings of the given channel or the default settings if the channel
+   * doesn't have any.
+   *
+   * @param channel the name of the channel
+   * @return the settings of the given channel.
+   */
+  public ChannelSettings channel(String channel) {
+    return channels.getOrDefault(channel, ChannelSettings.defaults());
+  }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Optional;
+
+/**
+ * Defines how many notifications a channel can fire at the same time, how many of them
+ * can wait for their turn, how fast they can be fired, how failed ones are retried and
+ * when to stop firing at a destination that is down.
+ */
+@RegisterForReflection
+public class ChannelSettings {
+
+  /**
+   * What to do with a notification when the channel is full.
+   */
+  public enum Rejection {
+
+    /**
+     * Rejects the notification, which is retried later if the channel has retry settings or
+     * stays in the outbox if there is one. This never fires the notification in the thread
+     * that is dispatching it, so a full channel can't hold threads shared with other channels.
+     */
+    @JsonProperty("drop") DROP,
+
+    /**
+     * Drops the oldest notification waiting and queues the new one.
+     */
+    @JsonProperty("drop_oldest") DROP_OLDEST
+
+  }
+
+  private final Integer concurrency;
+  private final int queueSize;
+  private final Rejection rejection;
+  private final RateSettings rate;
+  private final RateSettings targetRate;
+  private final RetrySettings retry;
+  private final CircuitBreakerSettings circuitBreaker;
+  private final CircuitBreakerSettings targetCircuitBreaker;
+
+  public ChannelSettings(Integer concurrency, Integer queueSize, Rejection rejection) {
+    this(concurrency, queueSize, rejection, null, null, null, null, null);
+  }
+
+  public ChannelSettings(Integer concurrency, Integer queueSize, Rejection rejection,
+                         RateSettings rate, RateSettings targetRate) {
+    this(concurrency, queueSize, rejection, rate, targetRate, null, null, null);
+  }
+
+  @JsonCreator
+  public ChannelSettings(@JsonProperty("concurrency") Integer concurrency,
+                         @JsonProperty("queue_size") Integer queueSize,
+                         @JsonProperty("rejection") Rejection rejection,
+                         @JsonProperty("rate") RateSettings rate,
+                         @JsonProperty("target_rate") RateSettings targetRate,
+                         @JsonProperty("retry") RetrySettings retry,
+                         @JsonProperty("circuit_breaker") CircuitBreakerSettings circuitBreaker,
+                         @JsonProperty("target_circuit_breaker") CircuitBreakerSettings targetCircuitBreaker) {
+    this.concurrency = concurrency;
+    this.queueSize = Optional.ofNullable(queueSize).orElse(1000);
+    this.rejection = Optional.ofNullable(rejection).orElse(Rejection.DROP);
+    this.rate = rate;
+    this.targetRate = targetRate;
+    this.retry = retry;
+    this.circuitBreaker = circuitBreaker;
+    this.targetCircuitBreaker = targetCircuitBreaker;
+
+    if (concurrency != null && concurrency < 1) {
+      throw new UnbelievableException("The concurrency of a channel should be positive");
+    }
+    if (this.queueSize < 1) {
+      throw new UnbelievableException("The queue size of a channel should be positive");
+    }
+  }
+
+  /**
+   * Returns the settings used by channels without any settings.
+   *
+   * @return the default settings.
+   */
+  public static ChannelSettings defaults() {
+    return new ChannelSettings(null, null, null);
+  }
+
+  /**
+   * Returns how many notifications the channel can fire at the same time.
+   *
+   * @return the number of notifications the channel can fire at the same time.
+   */
+  public int concurrency() {
+    return concurrency(4);
+  }
+
+  /**
+   * Returns how many notifications the channel can fire at the same time, using the given
+   * number if the channel doesn't set it.
+   *
+   * @param fallback the number to use if the channel doesn't set one
+   * @return the number of notifications the channel can fire at the same time.
+   */
+  public int concurrency(int fallback) {
+    return Optional.ofNullable(concurrency).orElse(fallback);
+  }
+
+  /**
+   * Returns how many notifications can wait for their turn.
+   *
+   * @return the size of the queue.
+   */
+  public int queueSize() {
+    return queueSize;
+  }
+
+  /**
+   * Returns what to do with notifications when the queue is full.
+   *
+   * @return the rejection policy.
+   */
+  public Rejection rejection() {
+    return rejection;
+  }
+
+  /**
+   * Returns how fast the channel can fire notifications.
+   *
+   * @return the rate of the whole channel.
+   */
+  public Optional<RateSettings> rate() {
+    return Optional.ofNullable(rate);
+  }
+
+  /**
+   * Returns how fast the channel can fire notifications to the same target.
+   *
+   * @return the rate of each target.
+   */
+  public Optional<RateSettings> targetRate() {
+    return Optional.ofNullable(targetRate);
+  }
+
+  /**
+   * Returns how the channel retries the notifications it fails to deliver.
+   *
+   * @return the retry settings of the channel.
+   */
+  public Optional<RetrySettings> retry() {
+    return Optional.ofNullable(retry);
+  }
+
+  /**
+   * Returns when the channel stops firing notifications because it's failing.
+   *
+   * @return the circuit breaker settings of the whole channel.
+   */
+  public Optional<CircuitBreakerSettings> circuitBreaker() {
+    return Optional.ofNullable(circuitBreaker);
+  }
+
+  /**
+   * Returns when the channel stops firing notifications to a target that is failing.
+   *
+   * @return the circuit breaker settings of each target.
+   */
+  public Optional<CircuitBreakerSettings> targetCircuitBreaker() {
+    return Optional.ofNullable(targetCircuitBreaker);
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Defines when a destination is considered down and for how long notifications stop
+ * being fired at it.
+ * <p>
+ * The circuit opens when the failure rate of the last deliveries reaches the threshold.
+ * After a while, a few probe deliveries are allowed and the circuit closes again if they
+ * work.
+ */
+@RegisterForReflection
+public class CircuitBreakerSettings {
+
+  private final int window;
+  private final int minimumCalls;
+  private final double failureRate;
+  private final Duration openDuration;
+  private final int halfOpenCalls;
+
+  @JsonCreator
+  public CircuitBreakerSettings(@JsonProperty("window") Integer window,
+                                @JsonProperty("minimum_calls") Integer minimumCalls,
+                                @JsonProperty("failure_rate") Double failureRate,
+                                @JsonProperty("open_duration") Integer openDuration,
+                                @JsonProperty("half_open_calls") Integer halfOpenCalls) {
+    this.window = Optional.ofNullable(window).orElse(20);
+    this.minimumCalls = Optional.ofNullable(minimumCalls).orElse(Math.min(10, this.window));
+    this.failureRate = Optional.ofNullable(failureRate).orElse(0.5);
+    this.openDuration = Duration.ofSeconds(Optional.ofNullable(openDuration).orElse(30));
+    this.halfOpenCalls = Optional.ofNullable(halfOpenCalls).orElse(1);
+
+    if (this.window < 1 || this.minimumCalls < 1 || this.minimumCalls > this.window) {
+      throw new UnbelievableException("The minimum calls should be positive and fit in the window");
+    }
+    if (this.failureRate <= 0 || this.failureRate > 1) {
+      throw new UnbelievableException("The failure rate should be between 0 and 1");
+    }
+    if (this.openDuration.isNegative() || this.openDuration.isZero()) {
+      throw new UnbelievableException("The open duration should be positive");
+    }
+    if (this.halfOpenCalls < 1) {
+      throw new UnbelievableException("The half open calls should be positive");
+    }
+  }
+
+  /**
+   * Returns how many of the last deliveries are used to compute the failure rate.
+   *
+   * @return the size of the window.
+   */
+  public int window() {
+    return window;
+  }
+
+  /**
+   * Returns how many deliveries are needed before the failure rate is taken into account.
+   *
+   * @return the minimum number of deliveries.
+   */
+  public int minimumCalls() {
+    return minimumCalls;
+  }
+
+  /**
+   * Returns the fraction of failed deliveries that opens the circuit.
+   *
+   * @return the failure rate threshold.
+   */
+  public double failureRate() {
+    return failureRate;
+  }
+
+  /**
+   * Returns how long the circuit stays open before probing the destination.
+   *
+   * @return the time the circuit stays open.
+   */
+  public Duration openDuration() {
+    return openDuration;
+  }
+
+  /**
+   * Returns how many probe deliveries are allowed, and need to work, to close the circuit.
+   *
+   * @return the number of probe deliveries.
+   */
+  public int halfOpenCalls() {
+    return halfOpenCalls;
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Defines how the connections to an endpoint should be pooled.
+ */
+@RegisterForReflection
+public class ConnectionSettings {
+
+  /**
+   * The maximum number of connections of a pool if none is given.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+  private static final Pattern HOST = Pattern.compile("^\\w+://([^/:?#$]+)");
+
+  private final String name;
+  private final int maxConnections;
+  private final boolean keepAlive;
+  private final int idleTimeout;
+  private final boolean http2;
+
+  @JsonCreator
+  public ConnectionSettings(@JsonProperty("name") String name,
+                            @JsonProperty("max_connections") Integer maxConnections,
+                            @JsonProperty("keep_alive") Boolean keepAlive,
+                            @JsonProperty("idle_timeout") Integer idleTimeout,
+                            @JsonProperty("http2") Boolean http2) {
+    this.name = name;
+    this.maxConnections = Optional.ofNullable(maxConnections).orElse(DEFAULT_MAX_CONNECTIONS);
+    this.keepAlive = Optional.ofNullable(keepAlive).orElse(true);
+    this.idleTimeout = Optional.ofNullable(idleTimeout).orElse(60);
+    this.http2 = Optional.ofNullable(http2).orElse(false);
+
+    if (this.maxConnections < 1) {
+      throw new UnbelievableException("The maximum number of connections should be positive");
+    }
+  }
+
+  /**
+   * Returns the name of the pool, used to identify its metrics. If no name was given, the
+   * host of the url will be used.
+   *
+   * @param url the url (or the template of the url) the pool connects to
+   * @return the name of the pool.
+   */
+  public String nameFor(String url) {
+    if (name != null) return name;
+    Matcher matcher = HOST.matcher(url == null ? "" : url);
+    return matcher.find() ? matcher.group(1) : "default";
+  }
+
+  /**
+   * Returns the maximum number of connections to keep open.
+   *
+   * @return the maximum number of connections to keep open.
+   */
+  public int maxConnections() {
+    return maxConnections;
+  }
+
+  /**
+   * Returns if the connections should be reused.
+   *
+   * @return {@code true} if the connections should be reused.
+   */
+  public boolean keepAlive() {
+    return keepAlive;
+  }
+
+  /**
+   * Returns how many seconds a connection may stay in the pool without being used.
+   *
+   * @return the idle timeout in seconds.
+   */
+  public int idleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Returns if HTTP/2 should be used where the endpoint supports it.
+   *
+   * @return {@code true} if HTTP/2 should be negotiated.
+   */
+  public boolean http2() {
+    return http2;
+  }
+
+}
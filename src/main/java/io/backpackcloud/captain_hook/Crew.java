@@ -25,16 +25,31 @@
 package io.backpackcloud.captain_hook;
 
 import io.backpackcloud.captain_hook.api.JollyRoger;
+import io.backpackcloud.captain_hook.impl.Deduplicator;
+import io.backpackcloud.captain_hook.impl.Digester;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.annotation.Counted;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The Crew is responsible for dealing with everything that boards the ship.
@@ -51,22 +66,104 @@ public class Crew {
 
   private final CaptainHook captainHook;
 
-  private final TemplateEngine templateEngine;
+  private final SubscriptionIndex subscriptions;
+
+  private final List<EventTemplate> webhooks;
+
+  private final Predicate<String> webhookFields;
 
   private final Plank plank;
 
+  private final Digester digester;
+
+  private final Deduplicator deduplicator;
+
   /**
    * The crew needs the orders from the Captain in order
+   * <p>
+   * Every template in the webhook mappings is compiled here, so an invalid template
+   * stops the crew from boarding instead of failing when a webhook arrives.
    *
    * @param captainHook    the orders from the captain so the crew can obey
    * @param templateEngine the template engine for parsing webhooks
    * @param plank          the plank to walk notifications
    */
-  @Inject
   public Crew(CaptainHook captainHook, TemplateEngine templateEngine, Plank plank) {
+    this(captainHook, templateEngine, plank, new Deduplicator(Duration.ZERO, 0, Collections.emptyList()));
+  }
+
+  /**
+   * Creates a crew that drops repeated events.
+   *
+   * @param captainHook    the orders from the captain so the crew can obey
+   * @param templateEngine the template engine for parsing webhooks
+   * @param plank          the plank to walk notifications
+   * @param registry       the registry for the deduplication metrics
+   * @param window         how many seconds an event is remembered to drop its duplicates
+   * @param size           how many events can be remembered
+   * @param labels         the labels identifying an event along with its name
+   */
+  @Inject
+  public Crew(CaptainHook captainHook, TemplateEngine templateEngine, Plank plank, MetricRegistry registry,
+              @ConfigProperty(name = "dedup.window", defaultValue = "0") int window,
+              @ConfigProperty(name = "dedup.size", defaultValue = "10000") int size,
+              @ConfigProperty(name = "dedup.labels") Optional<List<String>> labels) {
+    this(captainHook, templateEngine, plank,
+        new Deduplicator(Duration.ofSeconds(window), size, labels.orElse(Collections.emptyList())));
+    if (deduplicator.isEnabled()) {
+      deduplicator.meter(registry);
+    }
+  }
+
+  /**
+   * Creates a crew that drops the events the given deduplicator has already seen.
+   *
+   * @param captainHook    the orders from the captain so the crew can obey
+   * @param templateEngine the template engine for parsing webhooks
+   * @param plank          the plank to walk notifications
+   * @param deduplicator   the deduplicator for the incoming events
+   */
+  public Crew(CaptainHook captainHook, TemplateEngine templateEngine, Plank plank, Deduplicator deduplicator) {
     this.captainHook = captainHook;
-    this.templateEngine = templateEngine;
+    this.subscriptions = new SubscriptionIndex(captainHook.subscriptions());
+    this.webhooks = captainHook.webhooks().stream()
+        .map(mapping -> new EventTemplate(mapping, templateEngine))
+        .collect(Collectors.toList());
+    this.webhookFields = fieldsUsedBy(captainHook.webhooks(), templateEngine);
     this.plank = plank;
+    this.digester = new Digester(this::handle);
+    this.deduplicator = deduplicator;
+  }
+
+  private static Predicate<String> fieldsUsedBy(List<WebhookMapping> mappings, TemplateEngine templateEngine) {
+    Set<String> fields = new HashSet<>();
+    for (WebhookMapping mapping : mappings) {
+      Event event = mapping.event();
+      List<String> templates = Stream.concat(
+          Stream.of(event.name(), event.message(), event.title().orElse(null), event.url().orElse(null)),
+          event.labels().values().values().stream())
+          .collect(Collectors.toList());
+      for (String template : templates) {
+        Optional<Set<String>> variables = templateEngine.variables(template);
+        if (!variables.isPresent()) {
+          logger.infov("Webhook payloads will be fully parsed because of the template {0}", template);
+          return field -> true;
+        }
+        fields.addAll(variables.get());
+      }
+    }
+    return fields::contains;
+  }
+
+  /**
+   * Gets the crew aboard as soon as the ship sails so any problem with the Captain's
+   * orders shows up at startup.
+   *
+   * @param event the startup event
+   */
+  void onStart(@Observes StartupEvent event) {
+    logger.infov("Crew aboard with {0} webhook mappings and {1} subscriptions",
+        webhooks.size(), captainHook.subscriptions().size());
   }
 
   /**
@@ -84,18 +181,70 @@ public class Crew {
 
   /**
    * Analyses the given event and fire notifications to its subscribers.
+   * <p>
+   * Events already seen in the deduplication window are dropped without notifying anyone.
+   * Notifications of subscriptions with a digest are held to be summarized later.
    *
    * @param event the event to handle
-   * @return a list containing the notifications fired
+   * @return a list containing the notifications fired, including the ones held in a digest
    */
   @Counted(name = "events", description = "How many events were fired")
   public List<Notification> handle(Event event) {
+    if (deduplicator.isDuplicate(event)) {
+      logger.infov("Dropping duplicate of event {0}", event.name());
+      return Collections.emptyList();
+    }
     logger.infov("Handling event {0}", event.name());
-    return captainHook.subscriptions().stream()
-        .map(subscription -> subscription.yield(event))
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .peek(this::handle)
+    return match(event).stream()
+        .map(subscription -> deliver(subscription, event))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Analyses the given events and fire notifications to their subscribers.
+   * <p>
+   * Subscriptions are only matched once for events sharing the same name and labels. Events already
+   * seen in the deduplication window are dropped without notifying anyone. Notifications of subscriptions
+   * with a digest are held to be summarized later.
+   *
+   * @param events the events to handle
+   * @return a list containing the notifications fired for each event, in the same order of the events,
+   * including the ones held in a digest
+   */
+  @Counted(name = "eventBatches", description = "How many batches of events were fired")
+  public List<List<Notification>> handle(List<Event> events) {
+    logger.infov("Handling {0} events", events.size());
+    Map<List<Object>, List<Subscription>> matches = new HashMap<>();
+
+    List<List<Notification>> result = new ArrayList<>(events.size());
+    for (Event event : events) {
+      if (deduplicator.isDuplicate(event)) {
+        result.add(Collections.emptyList());
+        continue;
+      }
+      result.add(matches.computeIfAbsent(Arrays.asList(event.name(), event.labels()), key -> match(event))
+          .stream()
+          .map(subscription -> deliver(subscription, event))
+          .collect(Collectors.toList()));
+    }
+    return result;
+  }
+
+  private Notification deliver(Subscription subscription, Event event) {
+    Notification notification = subscription.notificationFor(event);
+    Optional<Digest> digest = subscription.digest();
+
+    if (digest.isPresent()) {
+      digester.add(digest.get(), notification);
+    } else {
+      handle(notification);
+    }
+    return notification;
+  }
+
+  private List<Subscription> match(Event event) {
+    return subscriptions.candidates(event).stream()
+        .filter(subscription -> subscription.matches(event))
         .collect(Collectors.toList());
   }
 
@@ -108,23 +257,80 @@ public class Crew {
   @Counted(name = "webhooks", description = "How many webhooks were received")
   public List<Event> handle(Webhook webhook) {
     logger.infov("Handling webhook");
-    return captainHook.webhooks().stream()
-        .filter(mapping -> mapping.matches(webhook))
-        .map(WebhookMapping::event)
-        .map(eventMapping -> {
-          Map<String, String> eventLabels = new HashMap<>();
-
-          eventMapping.labels().values()
-              .forEach((key, value) -> eventLabels.put(key, templateEngine.evaluate(value, webhook.payload())));
-
-          return new Event(LabelSet.of(eventLabels),
-              templateEngine.evaluate(eventMapping.name(), webhook.payload()),
-              templateEngine.evaluate(eventMapping.message(), webhook.payload()),
-              templateEngine.evaluate(eventMapping.title().orElse(""), webhook.payload()),
-              templateEngine.evaluate(eventMapping.url().orElse(""), webhook.payload()));
-        })
+    return webhooks.stream()
+        .filter(eventTemplate -> eventTemplate.mapping.matches(webhook))
+        .map(eventTemplate -> eventTemplate.evaluate(webhook.payload()))
         .peek(this::handle)
         .collect(Collectors.toList());
   }
 
+  /**
+   * Tells which top level fields of a webhook payload might be used by the webhook mappings.
+   * Any other field can be safely ignored when parsing the payload.
+   *
+   * @return a filter for the webhook payload fields
+   */
+  public Predicate<String> webhookFields() {
+    return webhookFields;
+  }
+
+  /**
+   * Delivers the digests still open before the crew leaves the ship.
+   * <p>
+   * This runs on shutdown, before any bean is destroyed, so the plank and the deck are
+   * still able to deliver the summaries.
+   *
+   * @param event the shutdown event
+   */
+  void onStop(@Observes ShutdownEvent event) {
+    digester.flush();
+  }
+
+  /**
+   * Holds the compiled templates of a webhook mapping.
+   */
+  private static class EventTemplate {
+
+    private final WebhookMapping mapping;
+    private final Map<String, TemplateEngine.CompiledTemplate> labels;
+    private final TemplateEngine.CompiledTemplate name;
+    private final TemplateEngine.CompiledTemplate message;
+    private final TemplateEngine.CompiledTemplate title;
+    private final TemplateEngine.CompiledTemplate url;
+    private final Event literal;
+
+    private EventTemplate(WebhookMapping mapping, TemplateEngine templateEngine) {
+      Event event = mapping.event();
+
+      this.mapping = mapping;
+      this.labels = new HashMap<>();
+      event.labels().values()
+          .forEach((key, value) -> labels.put(key, templateEngine.compile(value)));
+      this.name = templateEngine.compile(event.name());
+      this.message = templateEngine.compile(event.message());
+      this.title = templateEngine.compile(event.title().orElse(""));
+      this.url = templateEngine.compile(event.url().orElse(""));
+
+      boolean isLiteral = name.isLiteral() && message.isLiteral() && title.isLiteral() && url.isLiteral() &&
+          labels.values().stream().allMatch(TemplateEngine.CompiledTemplate::isLiteral);
+      // events are immutable, so a mapping without templates can always produce the same event
+      this.literal = isLiteral ? evaluate(Collections.emptyMap()) : null;
+    }
+
+    private Event evaluate(Map<String, ?> payload) {
+      if (literal != null) return literal;
+
+      Map<String, String> eventLabels = new HashMap<>();
+
+      labels.forEach((key, value) -> eventLabels.put(key, value.evaluate(payload)));
+
+      return new Event(LabelSet.of(eventLabels),
+          name.evaluate(payload),
+          message.evaluate(payload),
+          title.evaluate(payload),
+          url.evaluate(payload));
+    }
+
+  }
+
 }
@@ -24,27 +24,143 @@
 
 package io.backpackcloud.captain_hook;
 
+import io.backpackcloud.captain_hook.impl.Bulkhead;
+import io.backpackcloud.captain_hook.impl.CircuitBreakers;
+import io.backpackcloud.captain_hook.impl.DeliveryLog;
+import io.backpackcloud.captain_hook.impl.PriorityScheduler;
+import io.backpackcloud.captain_hook.impl.Retrier;
+import io.backpackcloud.captain_hook.impl.Throttle;
+import io.backpackcloud.captain_hook.impl.VirtualThreads;
+import io.netty.util.HashedWheelTimer;
 import io.quarkus.vertx.ConsumeEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.logging.Logger;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Component that listens to events happening aboard.
+ * <p>
+ * Notifications are not fired in the order they arrive, higher priorities are served more
+ * often so they don't wait behind a burst of lower ones. Each channel fires its notifications
+ * in its own bulkhead, so a slow channel doesn't hold the others, and at the pace allowed
+ * by its rates. Notifications a channel fails to deliver are fired again later, according
+ * to its retry settings, and a channel whose circuit is open refuses notifications right
+ * away instead of waiting for a destination that is down.
+ * <p>
+ * Notifications to virtual addresses are copied to their actual addresses and dispatched
+ * right away. Each copy is on its own: a copy its channel can't take is dropped without
+ * failing the notification, which would deliver it again to every other address.
+ * <p>
+ * Delivering a notification gives back a stage that completes once the deck is done with
+ * it: the notification was delivered, handed to the dead letters or given up according to
+ * the settings of its channel. The stage fails if the deck could not take the notification,
+ * like when the channel is full or the deck is stopping, so the notification can be
+ * delivered again later.
  */
 @ApplicationScoped
 public class Deck {
 
+  private static final Logger logger = Logger.getLogger(Deck.class);
+
   private final Map<String, Transmitter> transmitters;
 
+  private final Map<String, Bulkhead> bulkheads;
+
+  private final Map<String, Throttle> throttles;
+
+  private final Map<String, Retrier> retriers;
+
+  private final Map<String, CircuitBreakers> circuits;
+
+  private final DeliveryLog deliveries = new DeliveryLog();
+
+  private final HashedWheelTimer timer;
+
+  private final PriorityScheduler scheduler;
+
   public Deck(Map<String, Transmitter> transmitters) {
     this.transmitters = transmitters;
+    this.bulkheads = Collections.emptyMap();
+    this.throttles = Collections.emptyMap();
+    this.retriers = Collections.emptyMap();
+    this.circuits = Collections.emptyMap();
+    this.timer = null;
+    this.scheduler = new PriorityScheduler(notification -> dispatch(notification, 1));
   }
 
   @Inject
-  public Deck(CaptainHook captainHook) {
-    this(captainHook.transmitters());
+  public Deck(CaptainHook captainHook,
+              MetricRegistry registry,
+              @ConfigProperty(name = "scheduler.threads", defaultValue = "4") int threads,
+              @ConfigProperty(name = "scheduler.weight.high", defaultValue = "8") int highWeight,
+              @ConfigProperty(name = "scheduler.weight.normal", defaultValue = "4") int normalWeight,
+              @ConfigProperty(name = "scheduler.weight.low", defaultValue = "1") int lowWeight,
+              @ConfigProperty(name = "channels.virtual.threads", defaultValue = "false") boolean virtualThreads,
+              @ConfigProperty(name = "channels.virtual.concurrency", defaultValue = "10000") int virtualConcurrency) {
+    Map<Priority, Integer> weights = new EnumMap<>(Priority.class);
+    weights.put(Priority.HIGH, highWeight);
+    weights.put(Priority.NORMAL, normalWeight);
+    weights.put(Priority.LOW, lowWeight);
+
+    this.transmitters = captainHook.transmitters();
+    this.bulkheads = new HashMap<>();
+    this.throttles = new HashMap<>();
+    this.retriers = new HashMap<>();
+    this.circuits = new HashMap<>();
+    this.timer = new HashedWheelTimer(runnable -> {
+      Thread thread = new Thread(runnable, "retry-timer");
+      thread.setDaemon(true);
+      return thread;
+    }, 100, TimeUnit.MILLISECONDS);
+    transmitters.keySet().forEach(channel -> {
+      ChannelSettings settings = captainHook.channel(channel);
+      bulkheads.put(channel, bulkhead(channel, settings, virtualThreads, virtualConcurrency).meter(registry));
+      Throttle throttle = new Throttle(settings, timer);
+      if (throttle.isActive()) {
+        throttles.put(channel, throttle.meter(registry, channel));
+      }
+      CircuitBreakers circuit = new CircuitBreakers(settings);
+      if (circuit.isActive()) {
+        circuits.put(channel, circuit.meter(registry, channel));
+      }
+      settings.retry().ifPresent(retry -> {
+        Function<Notification, CompletionStage<Void>> deadLetters = retry.deadLetter()
+            .<Function<Notification, CompletionStage<Void>>>map(address ->
+                notification -> deliver(notification.changeAddress(address)))
+            .orElse(notification -> CompletableFuture.completedFuture(null));
+        retriers.put(channel, new Retrier(channel, retry, timer, this::dispatch, deadLetters).meter(registry));
+      });
+    });
+    this.scheduler = new PriorityScheduler(notification -> dispatch(notification, 1), threads, weights).meter(registry);
+  }
+
+  private static Bulkhead bulkhead(String channel, ChannelSettings settings,
+                                   boolean virtualThreads, int virtualConcurrency) {
+    if (virtualThreads) {
+      Optional<ThreadFactory> factory = VirtualThreads.factory("channel-" + channel + "-");
+      if (factory.isPresent()) {
+        return Bulkhead.virtual(channel, settings, factory.get(), settings.concurrency(virtualConcurrency));
+      }
+      logger.warnv("Virtual threads are not supported by this JVM, channel {0} will use platform threads", channel);
+    }
+    return new Bulkhead(channel, settings);
   }
 
   /**
@@ -54,8 +170,127 @@ public class Deck {
    */
   @ConsumeEvent(Plank.NOTIFICATION_WALKED)
   public void fire(Notification notification) {
-    transmitters.getOrDefault(notification.destination().channel(), n -> {})
-        .fire(notification);
+    deliver(notification).whenComplete((result, failure) -> {
+      if (failure != null) {
+        logger.warnv("Dropping notification to {0} ({1})", notification.destination(), failure.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Delivers the given notification.
+   *
+   * @param notification the notification to deliver
+   * @return the stage that completes once the deck is done with the notification.
+   */
+  public CompletionStage<Void> deliver(Notification notification) {
+    return scheduler.submit(notification);
+  }
+
+  private CompletionStage<Void> dispatch(Notification notification, int attempt) {
+    String channel = notification.destination().channel();
+    Transmitter transmitter = transmitters.getOrDefault(channel, n -> {});
+
+    Optional<List<Address>> forward = transmitter.forward(notification);
+    if (forward.isPresent()) {
+      // the copies go straight to their channels instead of walking the plank again, and a
+      // copy its channel can't take is dropped alone so the others are not delivered twice
+      CompletableFuture<?>[] copies = forward.get().stream()
+          .map(notification::changeAddress)
+          .map(copy -> dispatch(copy, 1).exceptionally(failure -> {
+            logger.warnv("Dropping notification to {0} ({1})", copy.destination(), failure.getMessage());
+            return null;
+          }).toCompletableFuture())
+          .toArray(CompletableFuture[]::new);
+      return CompletableFuture.allOf(copies);
+    }
+
+    Throttle throttle = throttles.get(channel);
+    Bulkhead bulkhead = bulkheads.get(channel);
+    Retrier retrier = retriers.get(channel);
+    CircuitBreakers circuit = circuits.get(channel);
+
+    Supplier<CompletionStage<Void>> fire = () -> transmitter.deliver(notification)
+        .handle((result, failure) -> {
+          // refused notifications don't mean the destination is down
+          boolean worked = failure == null || !DeliveryException.isRetryable(failure);
+          deliveries.record(channel, worked);
+          if (circuit != null) {
+            if (worked) {
+              circuit.onSuccess(notification);
+            } else {
+              circuit.onFailure(notification);
+            }
+          }
+          return failure;
+        })
+        .thenCompose(failure -> {
+          if (failure == null) return CompletableFuture.completedFuture(null);
+          if (retrier != null) return retrier.failed(notification, attempt, failure);
+          logger.errorv(failure, "Could not deliver notification to {0}", notification.destination());
+          return CompletableFuture.completedFuture(null);
+        });
+    Supplier<CompletionStage<Void>> throttled = throttle == null ?
+        fire :
+        // long waits hand the notification back to the channel instead of holding its thread
+        () -> throttle.pace(notification, fire, bulkhead == null ? Supplier::get : bulkhead::submit);
+    Supplier<CompletionStage<Void>> task = circuit == null ?
+        throttled :
+        () -> {
+          if (circuit.tryAcquire(notification)) {
+            return throttled.get();
+          } else if (retrier != null) {
+            return retrier.failed(notification, attempt,
+                new DeliveryException("The circuit of " + channel + " is open", true));
+          }
+          logger.warnv("Dropping notification to {0} because its circuit is open", notification.destination());
+          return CompletableFuture.completedFuture(null);
+        };
+
+    if (bulkhead == null) {
+      return task.get();
+    }
+    // the task handles its own failures, so these are the notifications the channel didn't take
+    return bulkhead.submit(task)
+        .handle((result, failure) -> failure)
+        .thenCompose(failure -> {
+          if (failure == null) return CompletableFuture.completedFuture(null);
+          if (retrier != null) return retrier.failed(notification, attempt, failure);
+          return CompletableFuture.failedFuture(failure);
+        });
+  }
+
+  /**
+   * Checks if the circuit of the given channel is not open.
+   *
+   * @param channel the channel to check
+   * @return {@code false} if the channel is refusing notifications.
+   */
+  public boolean isUp(String channel) {
+    CircuitBreakers circuit = circuits.get(channel);
+    return circuit == null || circuit.isUp();
+  }
+
+  /**
+   * Tells if the last delivery in the given channel worked, as long as it happened within
+   * the given time.
+   *
+   * @param channel the channel to check
+   * @param within  how old the delivery can be
+   * @return if the last recent delivery worked or an empty optional if there was no recent
+   * delivery.
+   */
+  public Optional<Boolean> lastOutcome(String channel, Duration within) {
+    return deliveries.lastOutcome(channel, within);
+  }
+
+  @PreDestroy
+  void stop() {
+    scheduler.stop();
+    if (timer != null) timer.stop();
+    retriers.values().forEach(Retrier::stop);
+    throttles.values().forEach(Throttle::stop);
+    bulkheads.values().forEach(Bulkhead::shutdown);
   }
 
 }
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Exception that tells a notification could not be delivered and if it's worth trying
+ * again.
+ */
+public class DeliveryException extends UnbelievableException {
+
+  private final boolean retryable;
+
+  public DeliveryException(String message, boolean retryable) {
+    super(message);
+    this.retryable = retryable;
+  }
+
+  public DeliveryException(Throwable cause) {
+    super(cause);
+    this.retryable = true;
+  }
+
+  /**
+   * Checks if the delivery might work if tried again.
+   *
+   * @return {@code true} if the failure is transient.
+   */
+  public boolean isRetryable() {
+    return retryable;
+  }
+
+  /**
+   * Creates an exception for a delivery answered with the given HTTP status. Server errors
+   * and requests throttled by the destination are retryable, other client errors are not.
+   *
+   * @param status the HTTP status of the response
+   * @return the exception for the given status.
+   */
+  public static DeliveryException forStatus(int status) {
+    return new DeliveryException("Got HTTP Status " + status, status >= 500 || status == 429);
+  }
+
+  /**
+   * Checks if the given failure of a delivery might go away if the delivery is tried again.
+   * Failures other than a {@link DeliveryException} are taken as transient.
+   *
+   * @param failure the failure of the delivery, possibly wrapped by a completion stage
+   * @return {@code true} if the failure is transient.
+   */
+  public static boolean isRetryable(Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    return !(failure instanceof DeliveryException) || ((DeliveryException) failure).isRetryable();
+  }
+
+}
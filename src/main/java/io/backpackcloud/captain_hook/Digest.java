@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JacksonInject;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Defines how the notifications of a subscription are gathered into a single one.
+ * <p>
+ * Notifications for the same address are held during a time window and summarized by
+ * the templates of the digest, which have access to the notifications as {@code notifications}
+ * and to their {@code count}, {@code destination} and {@code target}.
+ */
+@RegisterForReflection
+public class Digest {
+
+  private static final String DEFAULT_TITLE = "${count} notifications";
+  private static final String DEFAULT_MESSAGE =
+      "<#list notifications as notification>${notification.message}<#sep>\n</#sep></#list>";
+
+  private final Duration window;
+  private final int maxSize;
+  private final TemplateEngine.CompiledTemplate title;
+  private final TemplateEngine.CompiledTemplate message;
+
+  @JsonCreator
+  public Digest(@JsonProperty("window") Integer window,
+                @JsonProperty("max_size") Integer maxSize,
+                @JsonProperty("title") String title,
+                @JsonProperty("message") String message,
+                @JacksonInject("templateEngine") TemplateEngine templateEngine) {
+    this.window = Duration.ofSeconds(Optional.ofNullable(window)
+        .orElseThrow(UnbelievableException.because("Cannot create a digest without a window")));
+    this.maxSize = Optional.ofNullable(maxSize).orElse(100);
+    this.title = templateEngine.compile(Optional.ofNullable(title).orElse(DEFAULT_TITLE));
+    this.message = templateEngine.compile(Optional.ofNullable(message).orElse(DEFAULT_MESSAGE));
+
+    if (this.window.isNegative() || this.window.isZero()) {
+      throw new UnbelievableException("The window of a digest should be positive");
+    }
+    if (this.maxSize < 1) {
+      throw new UnbelievableException("The maximum size of a digest should be positive");
+    }
+  }
+
+  /**
+   * Returns for how long the notifications are held.
+   *
+   * @return the time window of this digest.
+   */
+  public Duration window() {
+    return window;
+  }
+
+  /**
+   * Returns how many notifications can be held before the window ends.
+   *
+   * @return the maximum number of notifications in a digest.
+   */
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Summarizes the given notifications into a single one. A single notification is kept
+   * as it is.
+   *
+   * @param destination   the address of the notifications
+   * @param notifications the notifications to summarize
+   * @return the notification summarizing the given ones.
+   */
+  public Notification summarize(Address destination, List<Notification> notifications) {
+    if (notifications.size() == 1) return notifications.get(0);
+
+    Map<String, Object> context = new HashMap<>();
+    context.put("notifications", notifications.stream()
+        .map(Notification::context)
+        .collect(Collectors.toList()));
+    context.put("count", notifications.size());
+    context.put("destination", destination);
+    context.put("target", destination.id());
+
+    Priority priority = notifications.stream()
+        .map(Notification::priority)
+        .max(Enum::compareTo)
+        .orElse(Priority.NORMAL);
+
+    return new Notification(title.evaluate(context), message.evaluate(context), null,
+        destination, priority, commonLabels(notifications));
+  }
+
+  // only the labels shared by every notification still make sense for the digest
+  private LabelSet commonLabels(List<Notification> notifications) {
+    Map<String, String> labels = null;
+    for (Notification notification : notifications) {
+      Map<String, String> values = notification.labels() == null ?
+          Map.of() : notification.labels().values();
+      if (labels == null) {
+        labels = new HashMap<>(values);
+      } else {
+        labels.entrySet().removeIf(entry -> !entry.getValue().equals(values.get(entry.getKey())));
+      }
+    }
+    return LabelSet.of(labels);
+  }
+
+}
@@ -32,7 +32,9 @@ import io.quarkus.runtime.annotations.RegisterForReflection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 /**
  * Represents data that can be attached to some particles.
@@ -62,6 +64,18 @@ public class LabelSet {
     return Optional.ofNullable(values.get(label));
   }
 
+  /**
+   * Gets the value mapped to the given key name in this data instance without
+   * wrapping it.
+   *
+   * @param label the label name
+   * @return the value mapped to the given label or {@code null} if there is none.
+   */
+  @JsonIgnore
+  public String valueOf(String label) {
+    return values.get(label);
+  }
+
   /**
    * Checks if this label set is empty.
    *
@@ -80,6 +94,15 @@ public class LabelSet {
     return this.values.size();
   }
 
+  /**
+   * Performs the given action for each label in this set without copying its values.
+   *
+   * @param action the action to perform with the label name and its value
+   */
+  public void forEach(BiConsumer<String, String> action) {
+    this.values.forEach(action);
+  }
+
   /**
    * Creates a new map containing this data.
    *
@@ -90,6 +113,19 @@ public class LabelSet {
     return new HashMap<>(values);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    LabelSet labelSet = (LabelSet) o;
+    return values.equals(labelSet.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(values);
+  }
+
   /**
    * Creates a new data object based on the given map. Further modifications
    * to the given map won't affect the created data.
@@ -25,7 +25,11 @@
 package io.backpackcloud.captain_hook;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Interface that abstracts how a data type is serialized and deserialized.
@@ -40,6 +44,22 @@ public interface Mapper {
    */
   String serialize(Object object);
 
+  /**
+   * Serializes the given object into bytes.
+   *
+   * @param object the object to serialize
+   * @return the serialized object.
+   */
+  byte[] serializeAsBytes(Object object);
+
+  /**
+   * Serializes the given object into the given output. The output is not closed.
+   *
+   * @param object the object to serialize
+   * @param output where to write the serialized object
+   */
+  void serialize(Object object, OutputStream output);
+
   /**
    * Deserialize the given input into an object of the given class.
    *
@@ -58,6 +78,49 @@ public interface Mapper {
    */
   <E> E deserialize(File file, Class<E> type);
 
+  /**
+   * Deserialize the given bytes into an object of the given class.
+   *
+   * @param input the input to deserialize
+   * @param type  the type of the result object
+   * @return the deserialized object.
+   */
+  <E> E deserialize(byte[] input, Class<E> type);
+
+  /**
+   * Deserialize the given input stream into an object of the given class.
+   *
+   * @param input the input to deserialize
+   * @param type  the type of the result object
+   * @return the deserialized object.
+   */
+  <E> E deserialize(InputStream input, Class<E> type);
+
+  /**
+   * Lazily deserializes a sequence of values of the given class from the input, like
+   * newline delimited JSON documents. Values are only read as the stream is consumed,
+   * so the stream should be closed after its use.
+   *
+   * @param input the input containing the values to deserialize
+   * @param type  the type of the values
+   * @return a stream of the deserialized values.
+   */
+  <E> Stream<E> deserializeAll(InputStream input, Class<E> type);
+
+  /**
+   * Lazily deserializes a sequence of objects from the input into generic Maps of attributes,
+   * keeping only the top level attributes accepted by the given filter. Every other attribute
+   * is skipped while parsing, without ever being materialized.
+   * <p>
+   * The objects can be either concatenated, like newline delimited JSON documents, or
+   * enclosed in an array. The stream should be closed after its use.
+   *
+   * @param input  the input containing the objects to deserialize
+   * @param fields the filter for the top level attributes to keep
+   * @return a stream of the deserialized objects.
+   */
+  Stream<Map<String, ?>> deserializeAll(InputStream input, Predicate<String> fields);
+
   /**
    * Deserialize the given input into a generic Map of attributes.
    *
@@ -68,4 +131,24 @@ public interface Mapper {
     return deserialize(input, Map.class);
   }
 
+  /**
+   * Deserialize the given input stream into a generic Map of attributes.
+   *
+   * @param input the input to deserialize
+   * @return the deserialized object.
+   */
+  default Map<String, ?> deserialize(InputStream input) {
+    return deserialize(input, Map.class);
+  }
+
+  /**
+   * Deserialize the given bytes into a generic Map of attributes.
+   *
+   * @param input the input to deserialize
+   * @return the deserialized object.
+   */
+  default Map<String, ?> deserialize(byte[] input) {
+    return deserialize(input, Map.class);
+  }
+
 }
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Optional;
+
+/**
+ * Defines how many notifications can be fired in a second.
+ */
+@RegisterForReflection
+public class RateSettings {
+
+  private final double perSecond;
+  private final int burst;
+
+  @JsonCreator
+  public RateSettings(@JsonProperty("per_second") Double perSecond,
+                      @JsonProperty("burst") Integer burst) {
+    this.perSecond = Optional.ofNullable(perSecond)
+        .orElseThrow(UnbelievableException.because("Cannot create a rate without the number of notifications per second"));
+    this.burst = Optional.ofNullable(burst).orElse(1);
+
+    if (this.perSecond <= 0) {
+      throw new UnbelievableException("The rate should be positive");
+    }
+  }
+
+  /**
+   * Returns how many notifications can be fired in a second.
+   *
+   * @return the number of notifications per second.
+   */
+  public double perSecond() {
+    return perSecond;
+  }
+
+  /**
+   * Returns how many notifications can be fired at once after a quiet period.
+   *
+   * @return the size of the burst.
+   */
+  public int burst() {
+    return burst;
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Defines how many times a notification is fired before giving up and how long to wait
+ * between the attempts.
+ * <p>
+ * The wait grows exponentially from the initial delay up to the maximum delay and is
+ * shortened by a random amount, up to the jitter fraction, so notifications that failed
+ * together are not retried together.
+ */
+@RegisterForReflection
+public class RetrySettings {
+
+  private final int maxAttempts;
+  private final long initialDelay;
+  private final long maxDelay;
+  private final double multiplier;
+  private final double jitter;
+  private final Address deadLetter;
+
+  @JsonCreator
+  public RetrySettings(@JsonProperty("max_attempts") Integer maxAttempts,
+                       @JsonProperty("initial_delay") Long initialDelay,
+                       @JsonProperty("max_delay") Long maxDelay,
+                       @JsonProperty("multiplier") Double multiplier,
+                       @JsonProperty("jitter") Double jitter,
+                       @JsonProperty("dead_letter") Address deadLetter) {
+    this.maxAttempts = Optional.ofNullable(maxAttempts).orElse(3);
+    this.initialDelay = Optional.ofNullable(initialDelay).orElse(1000L);
+    this.maxDelay = Optional.ofNullable(maxDelay).orElse(60000L);
+    this.multiplier = Optional.ofNullable(multiplier).orElse(2.0);
+    this.jitter = Optional.ofNullable(jitter).orElse(0.5);
+    this.deadLetter = deadLetter;
+
+    if (this.maxAttempts < 1) {
+      throw new UnbelievableException("The maximum attempts should be positive");
+    }
+    if (this.initialDelay < 1 || this.maxDelay < this.initialDelay) {
+      throw new UnbelievableException("The delays should be positive and the maximum should not be less than the initial");
+    }
+    if (this.multiplier < 1) {
+      throw new UnbelievableException("The multiplier should not be less than 1");
+    }
+    if (this.jitter < 0 || this.jitter > 1) {
+      throw new UnbelievableException("The jitter should be between 0 and 1");
+    }
+  }
+
+  /**
+   * Returns how many times a notification is fired, including the first one.
+   *
+   * @return the maximum number of attempts.
+   */
+  public int maxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Returns how long to wait before the given attempt.
+   *
+   * @param attempt the attempt about to be made (the first retry is the attempt 2)
+   * @param random  a random number between 0 and 1 to spread the wait
+   * @return the time to wait.
+   */
+  public Duration delayBefore(int attempt, double random) {
+    double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 2));
+    return Duration.ofMillis(Math.round(delay * (1 - jitter * random)));
+  }
+
+  /**
+   * Returns where to send the notifications that could not be delivered.
+   *
+   * @return the address for the dead letters.
+   */
+  public Optional<Address> deadLetter() {
+    return Optional.ofNullable(deadLetter);
+  }
+
+}
@@ -27,59 +27,183 @@ package io.backpackcloud.captain_hook;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
+/**
+ * A predicate that filters label sets based on a set of rules for their labels.
+ * <p>
+ * Rules are compiled into flat arrays, one position per label, holding what to do when
+ * the label is absent and which operation to apply to its value when it's present. This
+ * way testing a label set doesn't allocate anything.
+ */
 @RegisterForReflection
 public class Selector implements Predicate<LabelSet> {
 
+  private static final byte ANY = 0;
+  private static final byte NONE = 1;
+  private static final byte EQUALS = 2;
+  private static final byte NOT_EQUALS = 3;
+  private static final byte IN = 4;
+
+  private final String[] labels;
+  private final boolean[] absent;
+  private final byte[] operations;
+  private final String[] values;
+  private final Set[] sets;
+
   private final List<Predicate<LabelSet>> predicates;
+  private final Map<String, Set<String>> requirements;
 
   public Selector(List<Predicate<LabelSet>> predicates) {
+    this.labels = new String[0];
+    this.absent = new boolean[0];
+    this.operations = new byte[0];
+    this.values = new String[0];
+    this.sets = new Set[0];
     this.predicates = predicates;
+    this.requirements = Collections.emptyMap();
   }
 
-  @Override
-  public boolean test(LabelSet labelSet) {
-    return predicates.stream().allMatch(p -> p.test(labelSet));
-  }
+  private Selector(Map<String, String> rules) {
+    int size = rules.size();
+    Map<String, Set<String>> requirements = new LinkedHashMap<>();
 
-  @JsonCreator
-  public static Selector from(Map<String, String> values) {
-    List<Predicate<LabelSet>> predicates = new ArrayList<>(values.size());
+    this.labels = new String[size];
+    this.absent = new boolean[size];
+    this.operations = new byte[size];
+    this.values = new String[size];
+    this.sets = new Set[size];
+    this.predicates = Collections.emptyList();
 
-    values.forEach((key, value) -> {
-      Predicate<LabelSet> predicate = null;
+    int i = 0;
+    for (Map.Entry<String, String> rule : rules.entrySet()) {
+      labels[i] = rule.getKey();
+      compile(i, rule.getValue());
 
-      for (String v : value.split("\\s*\\|\\s*")) {
-        if (predicate == null) {
-          predicate = createPredicate(key, v);
-        } else {
-          predicate = predicate.or(createPredicate(key, v));
+      if (!absent[i]) {
+        switch (operations[i]) {
+          case EQUALS:
+            requirements.put(labels[i], Collections.singleton(values[i]));
+            break;
+          case IN:
+            requirements.put(labels[i], sets[i]);
+            break;
+          default:
+            requirements.put(labels[i], Collections.emptySet());
         }
       }
+      i++;
+    }
+
+    this.requirements = Collections.unmodifiableMap(requirements);
+  }
+
+  private void compile(int position, String rule) {
+    boolean anyValue = false;
+    Set<String> accepted = new HashSet<>();
+    Set<String> rejected = new HashSet<>();
 
-      predicates.add(predicate);
-    });
+    for (String alternative : rule.split("\\s*\\|\\s*")) {
+      boolean negated = false;
+      String value = alternative;
+      while (value.startsWith("!") && !value.equals("!")) {
+        negated = !negated;
+        value = value.substring(1);
+      }
+
+      switch (value) {
+        case "*":
+          if (negated) absent[position] = true;
+          else anyValue = true;
+          break;
+        case "!":
+          if (negated) anyValue = true;
+          else absent[position] = true;
+          break;
+        default:
+          if (negated) {
+            absent[position] = true;
+            rejected.add(value);
+          } else {
+            accepted.add(value);
+          }
+      }
+    }
 
-    return new Selector(predicates);
+    if (anyValue || rejected.size() > 1) {
+      operations[position] = ANY;
+    } else if (rejected.size() == 1) {
+      String value = rejected.iterator().next();
+      if (accepted.contains(value)) {
+        operations[position] = ANY;
+      } else {
+        operations[position] = NOT_EQUALS;
+        values[position] = value;
+      }
+    } else if (accepted.isEmpty()) {
+      operations[position] = NONE;
+    } else if (accepted.size() == 1) {
+      operations[position] = EQUALS;
+      values[position] = accepted.iterator().next();
+    } else {
+      operations[position] = IN;
+      sets[position] = Collections.unmodifiableSet(accepted);
+    }
   }
 
-  private static Predicate<LabelSet> createPredicate(String key, String value) {
-    switch (value) {
-      case "*":
-        return labelSet -> labelSet.get(key).isPresent();
-      case "!":
-        return labelSet -> labelSet.get(key).isEmpty();
+  @Override
+  public boolean test(LabelSet labelSet) {
+    for (int i = 0; i < labels.length; i++) {
+      String value = labelSet.valueOf(labels[i]);
+      if (value == null) {
+        if (!absent[i]) return false;
+      } else if (!accepts(i, value)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < predicates.size(); i++) {
+      if (!predicates.get(i).test(labelSet)) return false;
+    }
+    return true;
+  }
+
+  private boolean accepts(int position, String value) {
+    switch (operations[position]) {
+      case ANY:
+        return true;
+      case EQUALS:
+        return values[position].equals(value);
+      case NOT_EQUALS:
+        return !values[position].equals(value);
+      case IN:
+        return sets[position].contains(value);
       default:
-        if (value.startsWith("!")) return createPredicate(key, value.substring(1)).negate();
-        return labelSet -> labelSet.get(key).filter(value::equals).isPresent();
+        return false;
     }
   }
 
+  /**
+   * Returns the labels that must be present for this selector to accept a label set, along
+   * with the values accepted for each of them. An empty set of values means any value is
+   * accepted. Labels that are allowed to be absent are not included.
+   *
+   * @return the labels required by this selector.
+   */
+  public Map<String, Set<String>> requirements() {
+    return requirements;
+  }
+
+  @JsonCreator
+  public static Selector from(Map<String, String> values) {
+    return new Selector(values);
+  }
+
   public static Selector empty() {
     return new Selector(Collections.emptyList());
   }
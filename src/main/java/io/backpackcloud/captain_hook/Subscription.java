@@ -42,17 +42,51 @@ public class Subscription {
   private final String name;
   private final Address destination;
   private final Priority priority;
+  private final Digest digest;
 
   @JsonCreator
   public Subscription(@JsonProperty("selector") Selector selector,
                       @JsonProperty("name") String name,
                       @JsonProperty("destination") Address destination,
-                      @JsonProperty("priority") Priority priority) {
+                      @JsonProperty("priority") Priority priority,
+                      @JsonProperty("digest") Digest digest) {
     this.name = name;
     this.destination = Optional.ofNullable(destination)
         .orElseThrow(UnbelievableException.because("No destination defined"));
     this.selector = Optional.ofNullable(selector).orElseGet(Selector::empty);
     this.priority = priority;
+    this.digest = digest;
+  }
+
+  public Subscription(Selector selector, String name, Address destination, Priority priority) {
+    this(selector, name, destination, priority, null);
+  }
+
+  /**
+   * Returns the name of the events this subscription is bound to, if any.
+   *
+   * @return the optional name of the subscribed events.
+   */
+  public Optional<String> name() {
+    return Optional.ofNullable(name);
+  }
+
+  /**
+   * Returns the selector used to filter the labels of the events.
+   *
+   * @return the selector of this subscription.
+   */
+  public Selector selector() {
+    return selector;
+  }
+
+  /**
+   * Returns the digest used to gather the notifications of this subscription, if any.
+   *
+   * @return the optional digest of this subscription.
+   */
+  public Optional<Digest> digest() {
+    return Optional.ofNullable(digest);
   }
 
   /**
@@ -76,8 +110,18 @@ public class Subscription {
    */
   public Optional<Notification> yield(Event event) {
     if (matches(event))
-      return Optional.of(new Notification(event, destination, priority));
+      return Optional.of(notificationFor(event));
     else return Optional.empty();
   }
 
+  /**
+   * Produces a notification for the given event without checking if this subscription matches it.
+   *
+   * @param event the event to notify
+   * @return a notification of the given event for the destination of this subscription.
+   */
+  public Notification notificationFor(Event event) {
+    return new Notification(event, destination, priority);
+  }
+
 }
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index of subscriptions that narrows down which subscriptions need to be
+ * checked for a given event.
+ * <p>
+ * Subscriptions are grouped by the event name they are bound to and indexed by one of
+ * the labels their selectors require: either by each accepted value of that label or,
+ * if any value is accepted, by the label itself. Subscriptions whose selectors don't
+ * require any label are always candidates for the events they are bound to.
+ * <p>
+ * The index only narrows the search, the candidates still need to be checked against
+ * the event.
+ */
+public class SubscriptionIndex {
+
+  private final List<Subscription> subscriptions;
+  private final Map<String, Bucket> named;
+  private final Bucket unnamed;
+
+  public SubscriptionIndex(List<Subscription> subscriptions) {
+    this.subscriptions = new ArrayList<>(subscriptions);
+    this.named = new HashMap<>();
+    this.unnamed = new Bucket();
+
+    for (int i = 0; i < this.subscriptions.size(); i++) {
+      Subscription subscription = this.subscriptions.get(i);
+      Bucket bucket = subscription.name()
+          .map(name -> named.computeIfAbsent(name, n -> new Bucket()))
+          .orElse(unnamed);
+      bucket.add(i, subscription.selector());
+    }
+  }
+
+  /**
+   * Returns the subscriptions that might match the given event, in the same order
+   * they were given to this index.
+   *
+   * @param event the event to look up
+   * @return the candidate subscriptions for the given event.
+   */
+  public List<Subscription> candidates(Event event) {
+    BitSet result = new BitSet(subscriptions.size());
+
+    Bucket bucket = named.get(event.name());
+    if (bucket != null) bucket.collect(event.labels(), result);
+    unnamed.collect(event.labels(), result);
+
+    List<Subscription> candidates = new ArrayList<>(result.cardinality());
+    for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+      candidates.add(subscriptions.get(i));
+    }
+    return candidates;
+  }
+
+  private static class Bucket {
+
+    private final Map<String, Map<String, BitSet>> values = new HashMap<>();
+    private final Map<String, BitSet> labels = new HashMap<>();
+    private final BitSet fallback = new BitSet();
+
+    private void add(int position, Selector selector) {
+      String label = null;
+      Set<String> accepted = null;
+
+      // the label accepting fewer values is the most selective one
+      for (Map.Entry<String, Set<String>> entry : selector.requirements().entrySet()) {
+        Set<String> candidate = entry.getValue();
+        if (accepted == null || (!candidate.isEmpty() && (accepted.isEmpty() || candidate.size() < accepted.size()))) {
+          label = entry.getKey();
+          accepted = candidate;
+        }
+      }
+
+      if (label == null) {
+        fallback.set(position);
+      } else if (accepted.isEmpty()) {
+        labels.computeIfAbsent(label, l -> new BitSet()).set(position);
+      } else {
+        Map<String, BitSet> byValue = values.computeIfAbsent(label, l -> new HashMap<>());
+        for (String value : accepted) {
+          byValue.computeIfAbsent(value, v -> new BitSet()).set(position);
+        }
+      }
+    }
+
+    private void collect(LabelSet labelSet, BitSet result) {
+      result.or(fallback);
+      labelSet.forEach((label, value) -> {
+        Map<String, BitSet> byValue = values.get(label);
+        if (byValue != null) {
+          BitSet positions = byValue.get(value);
+          if (positions != null) result.or(positions);
+        }
+        BitSet present = labels.get(label);
+        if (present != null) result.or(present);
+      });
+    }
+
+  }
+
+}
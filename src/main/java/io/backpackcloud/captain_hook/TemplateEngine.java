@@ -25,6 +25,8 @@
 package io.backpackcloud.captain_hook;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Interface that defines a template engine.
@@ -43,6 +45,98 @@ public interface TemplateEngine {
    */
   String evaluate(String template, Map<String, ?> context);
 
+  /**
+   * Evaluates every template in the given data, which can be either a String or a
+   * {@link CompiledTemplate}, and returns a new map containing the results.
+   *
+   * @param data    the data containing the templates
+   * @param context the set of variables to use when evaluating the templates
+   * @return a new map containing the evaluated data
+   */
   Map evaluate(Map data, Map<String, ?> context);
 
+  /**
+   * Compiles the given template so it can be evaluated without being parsed again.
+   * If the template is a file, it will be loaded.
+   *
+   * @param template a string of a file containing the template
+   * @return the compiled template
+   * @throws UnbelievableException if the template is not valid
+   */
+  CompiledTemplate compile(String template);
+
+  /**
+   * Creates a copy of the given data replacing every String by its compiled template.
+   * The result can be passed to {@link #evaluate(Map, Map)}.
+   *
+   * @param data the data containing the templates
+   * @return an unmodifiable copy of the given data with the templates compiled
+   * @throws UnbelievableException if any template is not valid
+   */
+  Map compile(Map data);
+
+  /**
+   * Checks if the given template is a literal, which means its evaluation is always
+   * the template itself and doesn't depend on any context.
+   *
+   * @param template the template to check
+   * @return {@code true} if the given template is a literal.
+   */
+  boolean isLiteral(String template);
+
+  /**
+   * Tells which variables the given template might refer to. The result may contain more
+   * names than the template actually uses, but never less.
+   *
+   * @param template the template to check
+   * @return the names of the variables or an empty optional if the engine can't tell which
+   * variables the template needs.
+   */
+  Optional<Set<String>> variables(String template);
+
+  /**
+   * Checks if every template in the given data is a literal. The data can hold either
+   * Strings or {@link CompiledTemplate compiled templates}.
+   *
+   * @param data the data containing the templates
+   * @return {@code true} if there is no need of a context to evaluate the given data.
+   */
+  default boolean isLiteral(Map<?, ?> data) {
+    for (Object value : data.values()) {
+      if (value instanceof CompiledTemplate) {
+        if (!((CompiledTemplate) value).isLiteral()) return false;
+      } else if (value instanceof String) {
+        if (!isLiteral((String) value)) return false;
+      } else if (value instanceof Map) {
+        if (!isLiteral((Map<?, ?>) value)) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A template that was already parsed by the engine.
+   */
+  interface CompiledTemplate {
+
+    /**
+     * Evaluates this template using the context map as the provided variables.
+     *
+     * @param context the set of variables to use when evaluating this template
+     * @return the result of the evaluation
+     */
+    String evaluate(Map<String, ?> context);
+
+    /**
+     * Checks if this template is a literal, which means its evaluation doesn't
+     * depend on any context.
+     *
+     * @return {@code true} if this template is a literal.
+     */
+    default boolean isLiteral() {
+      return false;
+    }
+
+  }
+
 }
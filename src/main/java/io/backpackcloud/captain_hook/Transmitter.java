@@ -32,6 +32,11 @@ import io.backpackcloud.captain_hook.transmitters.router.RouterTransmitter;
 import io.backpackcloud.captain_hook.transmitters.telegram.TelegramTransmitter;
 import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddressTransmitter;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Interface that represents how a notification is delivered to its desintation.
  */
@@ -52,6 +57,38 @@ public interface Transmitter {
    */
   void fire(Notification notification);
 
+  /**
+   * Fires the notification to its destination, telling how the delivery went so failed
+   * notifications can be retried.
+   * <p>
+   * The returned stage fails with a {@link DeliveryException} if the destination refused
+   * the notification. Transmitters that can't tell if a notification was delivered just
+   * fire it.
+   *
+   * @param notification the notification to send
+   * @return a stage completed when the notification is delivered
+   */
+  default CompletionStage<Void> deliver(Notification notification) {
+    try {
+      fire(notification);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Returns the addresses the notification should be forwarded to instead of being fired
+   * by this transmitter.
+   *
+   * @param notification the notification to forward
+   * @return the addresses to forward the notification or an empty optional if this
+   * transmitter fires the notification itself.
+   */
+  default Optional<List<Address>> forward(Notification notification) {
+    return Optional.empty();
+  }
+
   /**
    * Checks if this transmitter is up and running. The liveness health check will call this method.
    *
@@ -28,7 +28,6 @@ import io.backpackcloud.captain_hook.Address;
 import io.backpackcloud.captain_hook.Crew;
 import io.backpackcloud.captain_hook.Event;
 import io.backpackcloud.captain_hook.LabelSet;
-import io.backpackcloud.captain_hook.Mapper;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.Serializer;
 import io.backpackcloud.captain_hook.UnbelievableException;
@@ -48,6 +47,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -65,6 +65,11 @@ public class JollyRoger {
 
   private static final Logger logger = Logger.getLogger(JollyRoger.class);
 
+  /**
+   * Media type for newline delimited JSON.
+   */
+  public static final String NDJSON = "application/x-ndjson";
+
   private final Crew crew;
 
   private final Serializer serializer;
@@ -120,53 +125,113 @@ public class JollyRoger {
   }
 
   /**
-   * Boards the given webhook. If the webhook is ok, the crew will handle it.
+   * Boards the given events at once. If the events are ok, the crew will handle all of them.
    * <p>
-   * The webhook should have a JSON payload, which the Captain prefer, or an XML.
+   * Events can be sent either as a JSON array or as newline delimited JSON.
+   *
+   * @param events the events to handle
+   * @return a response containing, for each event in the same order, the list of addresses notified about it.
+   */
+  @POST
+  @Path("/events/batch")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Timed(name = "eventBatchTimer",
+      unit = MetricUnits.MILLISECONDS,
+      description = "Measure of how long it takes for the crew to be aware of a batch of events.")
+  public Response process(List<Event> events) {
+    logger.infov("Received {0} events", events.size());
+    return Response.ok(addresses(crew.handle(events))).build();
+  }
+
+  /**
+   * Boards the given newline delimited events at once. If the events are ok, the crew will
+   * handle all of them.
+   *
+   * @param input the newline delimited events
+   * @return a response containing, for each event in the same order, the list of addresses notified about it.
+   */
+  @POST
+  @Path("/events/batch")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Consumes(NDJSON)
+  @Timed(name = "eventStreamTimer",
+      unit = MetricUnits.MILLISECONDS,
+      description = "Measure of how long it takes for the crew to be aware of a stream of events.")
+  public Response process(InputStream input) {
+    List<Event> events;
+
+    try (Stream<Event> stream = serializer.json().deserializeAll(input, Event.class)) {
+      events = stream.collect(Collectors.toList());
+    } catch (UnbelievableException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new UnbelievableException(e);
+    }
+
+    return process(events);
+  }
+
+  private List<Set<Address>> addresses(List<List<Notification>> notifications) {
+    return notifications.stream()
+        .map(list -> list.stream()
+            .map(Notification::destination)
+            .collect(Collectors.toSet()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Boards the given webhooks. If the webhooks are ok, the crew will handle them.
+   * <p>
+   * The webhooks should have a JSON payload, which the Captain prefer, or an XML. Multiple
+   * webhooks can be sent at once as newline delimited JSON, they will share the same labels.
    * <p>
    * Be careful if you pass an XML, the Captain might order you to walk the plank.
+   * <p>
+   * Payloads are parsed while they board and any field not used by the webhook mappings
+   * is left behind.
    *
    * @param uriInfo the information about the url
    * @param headers the http headers
    * @param payload the webhook's payload
-   * @return a response containing the list of events generated by the given webhook
+   * @return a response containing the list of events generated by the given webhooks
    */
   @POST
   @Path("/webhooks")
   @Produces(MediaType.APPLICATION_JSON)
-  @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+  @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, NDJSON})
   @Timed(name = "webhookTimer",
       unit = MetricUnits.MILLISECONDS,
       description = "Measure of how long it takes for the crew to be aware of a webhook.")
   public Response process(@Context UriInfo uriInfo,
                           @Context HttpHeaders headers,
-                          String payload) {
+                          InputStream payload) {
     logger.infov("Received webhook");
-    Mapper mapper;
-
-    if (MediaType.APPLICATION_XML_TYPE.equals(headers.getMediaType())) {
-      mapper = serializer.xml();
-    } else {
-      mapper = serializer.json();
-    }
-
-    try {
-      Map<String, ?> payloadData = mapper.deserialize(payload);
-      Map<String, String> labelMap = new HashMap<>();
-
-      Stream.concat(headers.getRequestHeaders().entrySet().stream(), uriInfo.getQueryParameters().entrySet().stream())
-          .filter(entry -> !entry.getValue().isEmpty())
-          .forEach(entry -> labelMap.put(entry.getKey(), entry.getValue().get(0)));
+    Map<String, String> labelMap = new HashMap<>();
 
-      Webhook webhook = new Webhook(LabelSet.of(labelMap), payloadData);
+    Stream.concat(headers.getRequestHeaders().entrySet().stream(), uriInfo.getQueryParameters().entrySet().stream())
+        .filter(entry -> !entry.getValue().isEmpty())
+        .forEach(entry -> labelMap.put(entry.getKey(), entry.getValue().get(0)));
 
-      List<Event> events = crew.handle(webhook);
+    LabelSet labels = LabelSet.of(labelMap);
+    Set<Event> events = new HashSet<>();
 
-      if (events.isEmpty()) return Response.noContent().build();
-      else return Response.ok(new HashSet<>(events)).build();
+    try {
+      if (MediaType.APPLICATION_XML_TYPE.isCompatible(headers.getMediaType())) {
+        events.addAll(crew.handle(new Webhook(labels, serializer.xml().deserialize(payload))));
+      } else {
+        try (Stream<Map<String, ?>> payloads = serializer.json().deserializeAll(payload, crew.webhookFields())) {
+          payloads.forEach(payloadData -> events.addAll(crew.handle(new Webhook(labels, payloadData))));
+        }
+      }
+    } catch (UnbelievableException e) {
+      throw e;
     } catch (Exception e) {
       throw new UnbelievableException(e);
     }
+
+    if (events.isEmpty()) return Response.noContent().build();
+    else return Response.ok(events).build();
   }
 
 }
@@ -27,17 +27,58 @@ package io.backpackcloud.captain_hook.cdi;
 import io.backpackcloud.captain_hook.Cannon;
 import io.backpackcloud.captain_hook.Serializer;
 import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import io.backpackcloud.captain_hook.impl.BatchScheduler;
+import io.backpackcloud.captain_hook.impl.MeteredCannon;
 import io.backpackcloud.captain_hook.impl.UnirestCannon;
+import io.backpackcloud.captain_hook.impl.VertxCannon;
+import io.vertx.core.Vertx;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.logging.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
 
 @ApplicationScoped
 public class CannonProducer {
 
+  private static final Logger logger = Logger.getLogger(CannonProducer.class);
+
+  private final String client;
+
+  public CannonProducer(@ConfigProperty(name = "cannon.client", defaultValue = "unirest") String client) {
+    this.client = client;
+  }
+
   @Produces
-  public Cannon get(Serializer serializer, TemplateEngine templateEngine) {
-    return new UnirestCannon(serializer, templateEngine);
+  @Singleton
+  public Cannon get(Serializer serializer, TemplateEngine templateEngine, Vertx vertx, MetricRegistry registry) {
+    return new MeteredCannon(create(serializer, templateEngine, vertx), registry, "default");
+  }
+
+  @Produces
+  @Singleton
+  public BatchScheduler batchScheduler() {
+    return new BatchScheduler();
+  }
+
+  public void close(@Disposes BatchScheduler batchScheduler) {
+    batchScheduler.close();
+  }
+
+  private Cannon create(Serializer serializer, TemplateEngine templateEngine, Vertx vertx) {
+    logger.infov("Loading the {0} cannon", client);
+    switch (client) {
+      case "unirest":
+        return new UnirestCannon(serializer, templateEngine);
+      case "vertx":
+        return new VertxCannon(vertx, serializer, templateEngine);
+      default:
+        throw new UnbelievableException("Unknown cannon client: " + client);
+    }
   }
 
 }
@@ -27,6 +27,7 @@ package io.backpackcloud.captain_hook.cdi;
 import io.backpackcloud.captain_hook.CaptainHook;
 import io.backpackcloud.captain_hook.Cannon;
 import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.impl.BatchScheduler;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -46,8 +47,9 @@ public class ConfigProducer {
   @Produces
   @Singleton
   // WORKAROUND: declare cannon to force cdi to load it before jackson can inject it on the transmitters as needed
-  public CaptainHook getConfig(Serializer serializer, Cannon cannon) {
+  public CaptainHook getConfig(Serializer serializer, Cannon cannon, BatchScheduler batchScheduler) {
     serializer.addDependency("cannon", cannon);
+    serializer.addDependency("batchScheduler", batchScheduler);
     return serializer.yaml().deserialize(new File(configFile), CaptainHook.class);
   }
 
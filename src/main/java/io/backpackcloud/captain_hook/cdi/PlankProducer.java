@@ -24,18 +24,55 @@
 
 package io.backpackcloud.captain_hook.cdi;
 
+import io.backpackcloud.captain_hook.Deck;
 import io.backpackcloud.captain_hook.Plank;
+import io.backpackcloud.captain_hook.impl.Journal;
+import io.backpackcloud.captain_hook.impl.JournalPlank;
+import io.backpackcloud.captain_hook.impl.NotificationCodec;
 import io.vertx.axle.core.eventbus.EventBus;
+import io.vertx.core.eventbus.DeliveryOptions;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 
+import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Singleton;
+import java.nio.file.Paths;
+import java.util.Optional;
 
 public class PlankProducer {
 
+  private final Optional<String> outboxDir;
+  private final int segmentSize;
+  private final int window;
+
+  public PlankProducer(@ConfigProperty(name = "outbox.dir") Optional<String> outboxDir,
+                       @ConfigProperty(name = "outbox.segment.size", defaultValue = "67108864") int segmentSize,
+                       @ConfigProperty(name = "outbox.window", defaultValue = "1000") int window) {
+    this.outboxDir = outboxDir;
+    this.segmentSize = segmentSize;
+    this.window = window;
+  }
+
   @Produces
   @Singleton
-  public Plank get(EventBus eventBus) {
-    return notification -> eventBus.sender(Plank.NOTIFICATION_WALKED).write(notification);
+  public Plank get(EventBus eventBus, Deck deck, MetricRegistry registry) {
+    if (outboxDir.isPresent()) {
+      JournalPlank plank = new JournalPlank(new Journal(Paths.get(outboxDir.get()), segmentSize), deck::deliver, window);
+      registry.register("outboxBacklog", (Gauge<Long>) plank::backlog);
+      return plank;
+    }
+    io.vertx.core.eventbus.EventBus bus = eventBus.getDelegate();
+    bus.registerCodec(new NotificationCodec());
+    DeliveryOptions options = new DeliveryOptions().setCodecName(NotificationCodec.NAME);
+    return notification -> bus.send(Plank.NOTIFICATION_WALKED, notification, options);
+  }
+
+  public void close(@Disposes Plank plank) {
+    if (plank instanceof JournalPlank) {
+      ((JournalPlank) plank).close();
+    }
   }
 
 }
@@ -24,13 +24,20 @@
 
 package io.backpackcloud.captain_hook.cdi;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import io.backpackcloud.captain_hook.Mapper;
 import io.backpackcloud.captain_hook.Plank;
@@ -39,16 +46,28 @@ import io.backpackcloud.captain_hook.TemplateEngine;
 import io.backpackcloud.captain_hook.UnbelievableException;
 import io.backpackcloud.captain_hook.transmitters.pushover.PushoverService;
 import io.backpackcloud.captain_hook.transmitters.telegram.TelegramService;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @ApplicationScoped
 public class SerializerProducer {
@@ -63,6 +82,17 @@ public class SerializerProducer {
   private final Serializer serializer;
 
   public SerializerProducer() {
+    this(false);
+  }
+
+  /**
+   * Creates the producer.
+   *
+   * @param afterburner if the mappers should generate bytecode to access the properties
+   *                    instead of using reflection
+   */
+  @Inject
+  public SerializerProducer(@ConfigProperty(name = "serializer.afterburner", defaultValue = "false") boolean afterburner) {
     values = new InjectableValues.Std();
 
     jsonMapper = new ObjectMapper();
@@ -79,6 +109,13 @@ public class SerializerProducer {
     xmlMapper.registerModules(new Jdk8Module(), new JavaTimeModule());
     xmlMapper.setInjectableValues(values);
 
+    if (afterburner) {
+      logger.info("Using afterburner for serialization");
+      jsonMapper.registerModule(new AfterburnerModule());
+      yamlMapper.registerModule(new AfterburnerModule());
+      xmlMapper.registerModule(new AfterburnerModule());
+    }
+
     serializer = new SerializerImpl();
   }
 
@@ -104,19 +141,23 @@ public class SerializerProducer {
 
   class SerializerImpl implements Serializer {
 
+    private final Mapper json = new MapperImpl(jsonMapper);
+    private final Mapper yaml = new MapperImpl(yamlMapper);
+    private final Mapper xml = new MapperImpl(xmlMapper);
+
     @Override
     public Mapper json() {
-      return new MapperImpl(jsonMapper);
+      return json;
     }
 
     @Override
     public Mapper yaml() {
-      return new MapperImpl(yamlMapper);
+      return yaml;
     }
 
     @Override
     public Mapper xml() {
-      return new MapperImpl(xmlMapper);
+      return xml;
     }
 
     @Override
@@ -128,30 +169,58 @@ public class SerializerProducer {
 
   }
 
+  /**
+   * A mapper that keeps, for each type, the reader created by the object mapper. Readers and
+   * writers are immutable and thread safe, so they are shared by every call.
+   */
   static class MapperImpl implements Mapper {
 
     private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final Map<Class<?>, ObjectReader> readers;
 
     MapperImpl(ObjectMapper objectMapper) {
       this.objectMapper = objectMapper;
+      this.writer = objectMapper.writer();
+      this.readers = new ConcurrentHashMap<>();
     }
 
     @Override
     public String serialize(Object object) {
-      Writer writer = new StringWriter();
       try {
-        objectMapper.writeValue(writer, object);
+        return writer.writeValueAsString(object);
+      } catch (IOException e) {
+        logger.error("Error on serialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public byte[] serializeAsBytes(Object object) {
+      try {
+        return writer.writeValueAsBytes(object);
+      } catch (IOException e) {
+        logger.error("Error on serialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream output) {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+        // the output belongs to the caller
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        writer.writeValue(generator, object);
       } catch (IOException e) {
         logger.error("Error on serialize", e);
         throw new UnbelievableException(e);
       }
-      return writer.toString();
     }
 
     @Override
     public <E> E deserialize(String input, Class<E> type) {
       try {
-        return objectMapper.readValue(input, type);
+        return reader(type).readValue(input);
       } catch (IOException e) {
         logger.error("Error on deserialize", e);
         throw new UnbelievableException(e);
@@ -161,7 +230,135 @@ public class SerializerProducer {
     @Override
     public <E> E deserialize(File file, Class<E> type) {
       try {
-        return objectMapper.readValue(file, type);
+        return reader(type).readValue(file);
+      } catch (IOException e) {
+        logger.error("Error on deserialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public <E> E deserialize(byte[] input, Class<E> type) {
+      try {
+        return reader(type).readValue(input);
+      } catch (IOException e) {
+        logger.error("Error on deserialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public <E> E deserialize(InputStream input, Class<E> type) {
+      try {
+        return reader(type).readValue(input);
+      } catch (IOException e) {
+        logger.error("Error on deserialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public <E> Stream<E> deserializeAll(InputStream input, Class<E> type) {
+      try {
+        MappingIterator<E> iterator = reader(type).readValues(input);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(() -> {
+              try {
+                iterator.close();
+              } catch (IOException e) {
+                logger.error("Error while closing input", e);
+              }
+            });
+      } catch (IOException e) {
+        logger.error("Error on deserialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    @Override
+    public Stream<Map<String, ?>> deserializeAll(InputStream input, Predicate<String> fields) {
+      try {
+        JsonParser parser = objectMapper.getFactory().createParser(input);
+        Iterator<Map<String, ?>> iterator = new FilteringIterator(reader(Object.class), parser, fields);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(() -> {
+              try {
+                parser.close();
+              } catch (IOException e) {
+                logger.error("Error while closing input", e);
+              }
+            });
+      } catch (IOException e) {
+        logger.error("Error on deserialize", e);
+        throw new UnbelievableException(e);
+      }
+    }
+
+    private ObjectReader reader(Class<?> type) {
+      return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+  }
+
+  /**
+   * Walks through the tokens of a parser reading one object at a time and skipping the
+   * attributes that are not needed.
+   */
+  static class FilteringIterator implements Iterator<Map<String, ?>> {
+
+    private final ObjectReader reader;
+    private final JsonParser parser;
+    private final Predicate<String> fields;
+
+    private Map<String, ?> next;
+    private boolean done;
+
+    FilteringIterator(ObjectReader reader, JsonParser parser, Predicate<String> fields) {
+      this.reader = reader;
+      this.parser = parser;
+      this.fields = fields;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !done) {
+        next = read();
+        done = next == null;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map<String, ?> next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      Map<String, ?> result = next;
+      next = null;
+      return result;
+    }
+
+    private Map<String, ?> read() {
+      try {
+        JsonToken token = parser.nextToken();
+        // objects might be enclosed in an array
+        while (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY) {
+          token = parser.nextToken();
+        }
+        if (token == null) return null;
+        if (token != JsonToken.START_OBJECT) {
+          throw new UnbelievableException("Expected an object but got " + token);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          if (fields.test(name)) {
+            result.put(name, reader.readValue(parser));
+          } else {
+            parser.skipChildren();
+          }
+        }
+        return result;
       } catch (IOException e) {
         logger.error("Error on deserialize", e);
         throw new UnbelievableException(e);
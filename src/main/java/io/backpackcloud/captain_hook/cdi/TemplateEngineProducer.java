@@ -30,38 +30,47 @@ import freemarker.cache.MultiTemplateLoader;
 import freemarker.cache.TemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.DefaultObjectWrapperBuilder;
-import freemarker.template.Template;
 import io.backpackcloud.captain_hook.TemplateEngine;
 import io.backpackcloud.captain_hook.UnbelievableException;
-import io.backpackcloud.trugger.element.ElementCopy;
-import io.backpackcloud.trugger.element.Elements;
+import io.backpackcloud.captain_hook.impl.FreemarkerTemplateEngine;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.inject.Produces;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
 
 public class TemplateEngineProducer {
 
   private static final Logger logger = Logger.getLogger(TemplateEngineProducer.class);
 
   private final String templateFolderLocation;
+  private final int cacheSize;
 
   public TemplateEngineProducer(@ConfigProperty(name = "templates.dir", defaultValue = "./")
-                                    String templateFolderLocation) {
+                                    String templateFolderLocation,
+                                @ConfigProperty(name = "templates.cache.size", defaultValue = "1024")
+                                    int cacheSize) {
     this.templateFolderLocation = templateFolderLocation;
+    this.cacheSize = cacheSize;
   }
 
   @Produces
   @Singleton
-  public TemplateEngine getEngine() {
+  public TemplateEngine getEngine(MetricRegistry registry) {
+    FreemarkerTemplateEngine engine = new FreemarkerTemplateEngine(createConfiguration(), cacheSize);
+
+    registry.register("templateCacheHits", (Gauge<Long>) engine::cacheHits);
+    registry.register("templateCacheMisses", (Gauge<Long>) engine::cacheMisses);
+    registry.register("templateCacheSize", (Gauge<Integer>) engine::cacheSize);
+
+    return engine;
+  }
+
+  private Configuration createConfiguration() {
     Configuration cfg = new Configuration(Configuration.VERSION_2_3_29);
     cfg.setObjectWrapper(new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_29).build());
 
@@ -75,55 +84,7 @@ public class TemplateEngineProducer {
       throw new UnbelievableException(e);
     }
 
-    return new TemplateEngine() {
-      @Override
-      public String evaluate(String templateString, Map<String, ?> context) {
-        if (templateString == null) return null;
-
-        Template template;
-        Writer out = new StringWriter();
-
-        try {
-          if (templateString.endsWith(".ftl")) template = cfg.getTemplate(templateString);
-          else template = new Template("template", new StringReader(templateString), cfg);
-
-          template.process(context, out);
-        } catch (Exception e) {
-          logger.error("Error while processing template", e);
-          throw new UnbelievableException(e);
-        }
-
-        return out.toString();
-      }
-
-      @Override
-      public Map evaluate(Map data, Map<String, ?> context) {
-        Map<String, ?> result = new HashMap<>(context.size());
-
-        Elements.copy()
-            .from(data)
-            .notNull()
-            .map(copy -> evalTemplate(copy, context))
-            .to(result);
-
-        return result;
-      }
-
-      private Object evalTemplate(ElementCopy copy, Map<String, ?> context) {
-        if (copy.value() instanceof String) {
-          return evaluate((String) copy.value(), context);
-        } else if (copy.value() instanceof Map) {
-          Map result = new HashMap();
-          Elements.copy()
-              .from(copy.value())
-              .notNull()
-              .map(elementCopy -> evalTemplate(elementCopy, context))
-              .to(result);
-          return result;
-        }
-        return copy.value();
-      }
-    };
+    return cfg;
   }
 
 }
@@ -25,30 +25,98 @@
 package io.backpackcloud.captain_hook.health;
 
 import io.backpackcloud.captain_hook.CaptainHook;
+import io.backpackcloud.captain_hook.Deck;
+import io.backpackcloud.captain_hook.Transmitter;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Liveness;
+import org.jboss.logging.Logger;
 
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Reports if each transmitter is up.
+ * <p>
+ * Asking a transmitter might cost a request to its destination, so the health of the
+ * transmitters is refreshed in the background and probes just read the last results.
+ * A transmitter with a recent delivery is judged by the outcome of that delivery without
+ * being asked at all.
+ */
 @Liveness
+@ApplicationScoped
 public class Transmitters implements HealthCheck {
 
+  private static final Logger logger = Logger.getLogger(Transmitters.class);
+
   private final CaptainHook captainHook;
+  private final Deck deck;
+  private final Duration interval;
+  private final Map<String, Boolean> status;
+
+  private ScheduledExecutorService refresher;
 
   @Inject
-  public Transmitters(CaptainHook captainHook) {
+  public Transmitters(CaptainHook captainHook, Deck deck,
+                      @ConfigProperty(name = "health.refresh.interval", defaultValue = "30") int interval) {
     this.captainHook = captainHook;
+    this.deck = deck;
+    this.interval = Duration.ofSeconds(interval);
+    this.status = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Starts refreshing the health of the transmitters as soon as the ship sails.
+   *
+   * @param event the startup event
+   */
+  void onStart(@Observes StartupEvent event) {
+    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "health-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    refresher.scheduleWithFixedDelay(this::refresh, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void refresh() {
+    captainHook.transmitters().forEach((name, transmitter) ->
+        status.put(name, deck.lastOutcome(name, interval).orElseGet(() -> ask(name, transmitter))));
+  }
+
+  private boolean ask(String name, Transmitter transmitter) {
+    try {
+      return transmitter.isUp();
+    } catch (RuntimeException e) {
+      logger.errorv(e, "Error while checking transmitter {0}", name);
+      return false;
+    }
   }
 
   @Override
   public HealthCheckResponse call() {
     HealthCheckResponseBuilder response = HealthCheckResponse.named("Transmitters");
     response.up();
-    captainHook.transmitters()
-        .forEach((name, transmitter) -> response.withData(name, transmitter.isUp()));
+    // transmitters not checked yet are taken as up
+    captainHook.transmitters().keySet()
+        .forEach(name -> response.withData(name, status.getOrDefault(name, true) && deck.isUp(name)));
     return response.build();
   }
 
+  @PreDestroy
+  void stop() {
+    if (refresher != null) refresher.shutdownNow();
+  }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.backpackcloud.captain_hook.impl;
+
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the threads of the batching cannons.
+ * <p>
+ * A single timer thread closes the batches that waited long enough, and only hands them
+ * over. Every batch, full, lingered or flushed, is fired by the senders of its cannon: a
+ * pool with as many threads as the cannon has connections, since any other thread would
+ * only wait for a connection. The threads delivering the notifications never fire a batch,
+ * they just get the response of the batch to wait for.
+ * <p>
+ * Closing the scheduler fires every open batch, so notifications waiting for their batch
+ * are not lost when Captain Hook stops.
+ */
+public class BatchScheduler {
+
+  private static final Logger logger = Logger.getLogger(BatchScheduler.class);
+
+  private final ScheduledExecutorService timer;
+  private final Set<ExecutorService> senders;
+  private final Set<BatchingCannon> cannons;
+  private final Duration flushTimeout;
+
+  public BatchScheduler() {
+    this(Duration.ofSeconds(10));
+  }
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param flushTimeout how long to wait for the open batches to be fired when closing
+   */
+  public BatchScheduler(Duration flushTimeout) {
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "batch-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.senders = ConcurrentHashMap.newKeySet();
+    this.cannons = ConcurrentHashMap.newKeySet();
+    this.flushTimeout = flushTimeout;
+  }
+
+  void register(BatchingCannon cannon) {
+    cannons.add(cannon);
+  }
+
+  void schedule(Runnable task, Duration delay) {
+    timer.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates the threads to fire the batches of a cannon. The threads are only kept while
+   * there are batches to fire.
+   *
+   * @param size how many batches can be fired at once
+   * @return the executor for firing the batches
+   */
+  Executor senders(int size) {
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "batch-sender");
+      thread.setDaemon(true);
+      return thread;
+    };
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), threadFactory);
+    pool.allowCoreThreadTimeOut(true);
+    senders.add(pool);
+    return pool;
+  }
+
+  /**
+   * Fires every open batch, waiting for them up to the flush timeout, and stops the threads.
+   */
+  public void close() {
+    List<CompletableFuture<?>> flushed = cannons.stream()
+        .flatMap(cannon -> cannon.flush().stream())
+        .collect(Collectors.toList());
+    timer.shutdownNow();
+    if (!flushed.isEmpty()) {
+      logger.infov("Firing {0} open batches", flushed.size());
+      try {
+        CompletableFuture.allOf(flushed.toArray(new CompletableFuture[0]))
+            .get(flushTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        logger.warnv("Some batches could not be fired: {0}", e.getCause().toString());
+      } catch (TimeoutException e) {
+        logger.warnv("Gave up waiting for the open batches after {0}", flushTimeout);
+      }
+    }
+    senders.forEach(ExecutorService::shutdown);
+  }
+
+}
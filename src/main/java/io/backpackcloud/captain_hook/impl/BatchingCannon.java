@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.BatchSettings;
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.TemplateEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * A cannon that gathers the payloads aimed at the same url, with the same headers, and
+ * fires them together as a JSON array.
+ * <p>
+ * A batch is fired when it's full or when its first payload has waited for the maximum
+ * linger. Every payload in a batch gets the response of the whole batch.
+ * <p>
+ * Batches are fired by the senders the given {@link BatchScheduler} creates for this cannon,
+ * as many as its connections, so adding a payload never blocks on the request. The scheduler
+ * also fires the open batches when it's closed.
+ */
+public class BatchingCannon implements Cannon {
+
+  private final Cannon cannon;
+  private final BatchSettings settings;
+  private final TemplateEngine templateEngine;
+  private final BatchScheduler scheduler;
+  private final Executor senders;
+  private final Map<Map<String, ?>, Map<List<Object>, Batch>> batches;
+  private boolean closed;
+
+  public BatchingCannon(Cannon cannon, BatchSettings settings, TemplateEngine templateEngine, BatchScheduler scheduler) {
+    this(cannon, settings, templateEngine, scheduler, ConnectionSettings.DEFAULT_MAX_CONNECTIONS);
+  }
+
+  /**
+   * Creates a new batching cannon.
+   *
+   * @param cannon         the cannon to fire the batches
+   * @param settings       the settings of the batches
+   * @param templateEngine the template engine to tell the urls and headers apart
+   * @param scheduler      the scheduler for the timers and senders
+   * @param senders        how many batches can be fired at once, usually the connections of the cannon
+   */
+  public BatchingCannon(Cannon cannon, BatchSettings settings, TemplateEngine templateEngine, BatchScheduler scheduler,
+                        int senders) {
+    this.cannon = cannon;
+    this.settings = settings;
+    this.templateEngine = templateEngine;
+    this.scheduler = scheduler;
+    this.senders = scheduler.senders(senders);
+    // payloads are compiled once by their owners, so they can be told apart by identity
+    this.batches = new IdentityHashMap<>();
+    scheduler.register(this);
+  }
+
+  @Override
+  public Cannon withConnection(String name, ConnectionSettings connection) {
+    return new BatchingCannon(cannon.withConnection(name, connection), settings, templateEngine, scheduler,
+        connection.maxConnections());
+  }
+
+  @Override
+  public LoadedCannon load(List<Notification> notifications) {
+    return cannon.load(notifications);
+  }
+
+  @Override
+  public LoadedCannon load(Notification notification) {
+    return new LoadedCannon() {
+      Map<String, Object> headers = new HashMap<>();
+
+      @Override
+      public LoadedCannon add(Map<String, ?> additionalHeaders) {
+        this.headers.putAll(additionalHeaders);
+        return this;
+      }
+
+      @Override
+      public ReadyCannon aimAt(String url) {
+        return aimAt(templateEngine.compile(url));
+      }
+
+      @Override
+      public ReadyCannon aimAt(TemplateEngine.CompiledTemplate url) {
+        return new ReadyCannon() {
+          @Override
+          public Response fire(Map<String, ?> payload) {
+            return fireAsync(payload).toCompletableFuture().join();
+          }
+
+          @Override
+          public CompletionStage<Response> fireAsync(Map<String, ?> payload) {
+            Map<String, ?> context = notification.context();
+            // the evaluated values tell the batches apart, but the inner cannon gets the templates
+            List<Object> key = Arrays.asList(url.evaluate(context), templateEngine.evaluate(headers, context));
+            return batch(payload, key, url, new HashMap<>(headers), notification);
+          }
+        };
+      }
+    };
+  }
+
+  private CompletionStage<Response> batch(Map<String, ?> payload, List<Object> key,
+                                         TemplateEngine.CompiledTemplate url, Map<String, ?> headers,
+                                         Notification notification) {
+    Batch full = null;
+    Batch batch;
+
+    synchronized (batches) {
+      if (closed) {
+        // nothing would fire a new batch anymore
+        batch = new Batch(payload, url, headers);
+        batch.notifications.add(notification);
+        full = batch;
+      } else {
+        Map<List<Object>, Batch> byTarget = batches.computeIfAbsent(payload, p -> new HashMap<>());
+        batch = byTarget.get(key);
+        if (batch == null) {
+          Batch newBatch = new Batch(payload, url, headers);
+          batch = newBatch;
+          byTarget.put(key, batch);
+          scheduler.schedule(() -> linger(key, newBatch), settings.maxLinger());
+        }
+        batch.notifications.add(notification);
+        if (batch.notifications.size() >= settings.maxSize()) {
+          byTarget.remove(key);
+          full = batch;
+        }
+      }
+    }
+
+    if (full != null) {
+      fire(full);
+    }
+    return batch.response;
+  }
+
+  private void linger(List<Object> key, Batch batch) {
+    boolean open;
+    synchronized (batches) {
+      Map<List<Object>, Batch> byTarget = batches.get(batch.payload);
+      // the batch might have been fired already for being full
+      open = byTarget != null && byTarget.remove(key, batch);
+    }
+    if (open) {
+      fire(batch);
+    }
+  }
+
+  /**
+   * Fires every open batch and stops gathering new ones, so each payload fired from now on
+   * goes alone.
+   *
+   * @return the responses of the fired batches
+   */
+  List<CompletableFuture<Response>> flush() {
+    List<Batch> open = new ArrayList<>();
+    synchronized (batches) {
+      closed = true;
+      batches.values().forEach(byTarget -> open.addAll(byTarget.values()));
+      batches.clear();
+    }
+    open.forEach(this::fire);
+    return open.stream().map(batch -> batch.response).collect(Collectors.toList());
+  }
+
+  private void fire(Batch batch) {
+    try {
+      senders.execute(() -> send(batch));
+    } catch (RejectedExecutionException e) {
+      batch.response.completeExceptionally(e);
+    }
+  }
+
+  private void send(Batch batch) {
+    try {
+      cannon.load(batch.notifications)
+          .add(batch.headers)
+          .aimAt(batch.url)
+          .fireAsync(batch.payload)
+          .whenComplete((response, failure) -> {
+            if (failure != null) {
+              batch.response.completeExceptionally(failure);
+            } else {
+              batch.response.complete(response);
+            }
+          });
+    } catch (RuntimeException e) {
+      batch.response.completeExceptionally(e);
+    }
+  }
+
+  private static class Batch {
+
+    private final Map<String, ?> payload;
+    private final TemplateEngine.CompiledTemplate url;
+    private final Map<String, ?> headers;
+    private final List<Notification> notifications = new ArrayList<>();
+    private final CompletableFuture<Response> response = new CompletableFuture<>();
+
+    private Batch(Map<String, ?> payload, TemplateEngine.CompiledTemplate url, Map<String, ?> headers) {
+      this.payload = payload;
+      this.url = url;
+      this.headers = headers;
+    }
+
+  }
+
+}
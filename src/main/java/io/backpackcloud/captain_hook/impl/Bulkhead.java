@@ -0,0 +1,366 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.DeliveryException;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of threads reserved for a single channel, so a slow channel can only hold
+ * its own threads and never the ones from other channels.
+ * <p>
+ * The threads can be virtual ones, which makes it cheap to have thousands of notifications
+ * blocked on slow endpoints at the same time. Virtual threads are not pooled: each task
+ * gets a new one and a semaphore caps how many of them run at the same time.
+ * <p>
+ * Each task gives back a stage that completes along with the stage the task returns, or
+ * fails if the task is rejected.
+ */
+public class Bulkhead {
+
+  private static final Logger logger = Logger.getLogger(Bulkhead.class);
+
+  private final String channel;
+  private final Pool pool;
+  private final LongAdder rejections = new LongAdder();
+
+  public Bulkhead(String channel, ChannelSettings settings) {
+    this(channel, settings, threadFactory(channel));
+  }
+
+  public Bulkhead(String channel, ChannelSettings settings, ThreadFactory threadFactory) {
+    this.channel = channel;
+    this.pool = new PlatformPool(settings, threadFactory);
+  }
+
+  private Bulkhead(String channel, Function<Bulkhead, Pool> pool) {
+    this.channel = channel;
+    this.pool = pool.apply(this);
+  }
+
+  /**
+   * Creates a bulkhead that fires each notification in a new virtual thread.
+   *
+   * @param channel       the channel of the bulkhead
+   * @param settings      the settings of the channel
+   * @param threadFactory the factory of virtual threads
+   * @param concurrency   how many threads can run at the same time
+   * @return the created bulkhead.
+   */
+  public static Bulkhead virtual(String channel, ChannelSettings settings, ThreadFactory threadFactory, int concurrency) {
+    return new Bulkhead(channel, bulkhead -> bulkhead.new VirtualPool(settings, threadFactory, concurrency));
+  }
+
+  private static ThreadFactory threadFactory(String channel) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "channel-" + channel + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static void reject(Runnable runnable, Exception reason) {
+    if (runnable instanceof Task) {
+      ((Task) runnable).result.completeExceptionally(reason);
+    }
+  }
+
+  // a full channel might have room later
+  private DeliveryException full() {
+    return new DeliveryException("Channel " + channel + " is full", true);
+  }
+
+  private UnbelievableException stopped() {
+    return new UnbelievableException("Channel " + channel + " is stopped");
+  }
+
+  /**
+   * Executes the given task when a thread of this channel is free.
+   *
+   * @param task the task to execute
+   * @return the stage of the given task.
+   */
+  public CompletionStage<Void> submit(Supplier<? extends CompletionStage<Void>> task) {
+    Task runnable = new Task(task);
+    pool.execute(runnable);
+    return runnable.result;
+  }
+
+  /**
+   * Executes the given task when a thread of this channel is free.
+   *
+   * @param task the task to execute
+   */
+  public void execute(Runnable task) {
+    submit(() -> {
+      task.run();
+      return CompletableFuture.completedFuture(null);
+    });
+  }
+
+  /**
+   * Publishes how many notifications are waiting, in flight and rejected in this channel.
+   *
+   * @param registry the registry for the metrics
+   * @return this bulkhead
+   */
+  public Bulkhead meter(MetricRegistry registry) {
+    Tag tag = new Tag("channel", channel);
+    registry.register(gauge("channelQueueSize", "How many notifications are waiting for a free thread"),
+        (Gauge<Integer>) pool::waiting, tag);
+    registry.register(gauge("channelInFlight", "How many notifications are being fired"),
+        (Gauge<Integer>) pool::active, tag);
+    registry.register(gauge("channelRejections", "How many notifications found the channel full"),
+        (Gauge<Long>) rejections::sum, tag);
+    return this;
+  }
+
+  private static Metadata gauge(String name, String description) {
+    return Metadata.builder()
+        .withName(name)
+        .withDescription(description)
+        .withType(MetricType.GAUGE)
+        .build();
+  }
+
+  /**
+   * Stops accepting new notifications.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  private interface Pool {
+
+    void execute(Task task);
+
+    int waiting();
+
+    int active();
+
+    void shutdown();
+
+  }
+
+  private class PlatformPool implements Pool {
+
+    private final ThreadPoolExecutor executor;
+
+    private PlatformPool(ChannelSettings settings, ThreadFactory threadFactory) {
+      this.executor = new ThreadPoolExecutor(
+          settings.concurrency(), settings.concurrency(),
+          60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(settings.queueSize()),
+          threadFactory,
+          rejectionHandler(settings.rejection()));
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private RejectedExecutionHandler rejectionHandler(ChannelSettings.Rejection rejection) {
+      if (rejection == ChannelSettings.Rejection.DROP_OLDEST) {
+        return (runnable, pool) -> {
+          if (pool.isShutdown()) {
+            reject(runnable, stopped());
+            return;
+          }
+          rejections.increment();
+          logger.warnv("Channel {0} is full, dropping its oldest notification", channel);
+          reject(pool.getQueue().poll(), full());
+          pool.execute(runnable);
+        };
+      }
+      return (runnable, pool) -> {
+        if (pool.isShutdown()) {
+          reject(runnable, stopped());
+          return;
+        }
+        rejections.increment();
+        logger.warnv("Channel {0} is full, dropping notification", channel);
+        reject(runnable, full());
+      };
+    }
+
+    @Override
+    public void execute(Task task) {
+      executor.execute(task);
+    }
+
+    @Override
+    public int waiting() {
+      return executor.getQueue().size();
+    }
+
+    @Override
+    public int active() {
+      return executor.getActiveCount();
+    }
+
+    @Override
+    public void shutdown() {
+      executor.shutdown();
+    }
+
+  }
+
+  private class VirtualPool implements Pool {
+
+    private final ThreadFactory threadFactory;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final BlockingQueue<Task> queue;
+    private final ChannelSettings.Rejection rejection;
+    private volatile boolean shutdown;
+
+    private VirtualPool(ChannelSettings settings, ThreadFactory threadFactory, int concurrency) {
+      this.threadFactory = threadFactory;
+      this.concurrency = concurrency;
+      this.permits = new Semaphore(concurrency);
+      this.queue = new ArrayBlockingQueue<>(settings.queueSize());
+      this.rejection = settings.rejection();
+    }
+
+    @Override
+    public void execute(Task task) {
+      if (shutdown) {
+        reject(task, stopped());
+        return;
+      }
+      if (permits.tryAcquire()) {
+        start(task);
+        return;
+      }
+      if (!queue.offer(task)) {
+        rejections.increment();
+        if (rejection == ChannelSettings.Rejection.DROP_OLDEST) {
+          logger.warnv("Channel {0} is full, dropping its oldest notification", channel);
+          reject(queue.poll(), full());
+          if (!queue.offer(task)) {
+            reject(task, full());
+          }
+        } else {
+          logger.warnv("Channel {0} is full, dropping notification", channel);
+          reject(task, full());
+          return;
+        }
+      }
+      // a thread might have finished before the task got into the queue
+      drain();
+    }
+
+    private void drain() {
+      while (!queue.isEmpty() && permits.tryAcquire()) {
+        Task task = queue.poll();
+        if (task == null) {
+          permits.release();
+        } else {
+          start(task);
+        }
+      }
+    }
+
+    private void start(Task task) {
+      try {
+        threadFactory.newThread(() -> {
+          try {
+            task.run();
+          } finally {
+            permits.release();
+            drain();
+          }
+        }).start();
+      } catch (RuntimeException | Error e) {
+        permits.release();
+        logger.errorv(e, "Could not start a thread for channel {0}", channel);
+        task.result.completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public int waiting() {
+      return queue.size();
+    }
+
+    @Override
+    public int active() {
+      return concurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+  }
+
+  private class Task implements Runnable {
+
+    private final Supplier<? extends CompletionStage<Void>> task;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private Task(Supplier<? extends CompletionStage<Void>> task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      try {
+        task.get().whenComplete((value, failure) -> {
+          if (failure == null) {
+            result.complete(null);
+          } else {
+            result.completeExceptionally(failure);
+          }
+        });
+      } catch (Exception e) {
+        logger.errorv(e, "Error while firing notification through {0}", channel);
+        result.completeExceptionally(e);
+      }
+    }
+
+  }
+
+}
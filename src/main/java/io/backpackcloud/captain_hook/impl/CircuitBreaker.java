@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.CircuitBreakerSettings;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of the last deliveries to a destination and stops allowing new ones while
+ * too many of them fail.
+ * <p>
+ * The failure rate is computed over a fixed number of the last outcomes, kept in a ring.
+ * Once the circuit opens, deliveries are refused until the open duration passes. Then the
+ * circuit becomes half open and allows a few probes: if all of them work the circuit
+ * closes, if any of them fails the circuit opens again.
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states of a circuit.
+   */
+  public enum State {
+
+    CLOSED, HALF_OPEN, OPEN
+
+  }
+
+  private final CircuitBreakerSettings settings;
+  private final long openDuration;
+  private final LongSupplier clock;
+  private final boolean[] outcomes;
+
+  private State state = State.CLOSED;
+  private int position;
+  private int calls;
+  private int failures;
+  private long openedAt;
+  private int probes;
+  private int probeSuccesses;
+  private long lastCall;
+
+  public CircuitBreaker(CircuitBreakerSettings settings) {
+    this(settings, System::nanoTime);
+  }
+
+  /**
+   * Creates a new circuit breaker using the given clock.
+   *
+   * @param settings the settings of the circuit
+   * @param clock    the source of the current time in nanoseconds
+   */
+  public CircuitBreaker(CircuitBreakerSettings settings, LongSupplier clock) {
+    this.settings = settings;
+    this.openDuration = settings.openDuration().toNanos();
+    this.clock = clock;
+    this.outcomes = new boolean[settings.window()];
+    this.lastCall = clock.getAsLong();
+  }
+
+  /**
+   * Asks for permission to deliver a notification. Every permission given should be followed
+   * by a call to {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+   *
+   * @return {@code true} if the notification can be delivered.
+   */
+  public synchronized boolean tryAcquire() {
+    lastCall = clock.getAsLong();
+    if (state == State.OPEN) {
+      if (clock.getAsLong() - openedAt < openDuration) return false;
+      state = State.HALF_OPEN;
+      probes = 0;
+      probeSuccesses = 0;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probes >= settings.halfOpenCalls()) return false;
+      probes++;
+    }
+    return true;
+  }
+
+  /**
+   * Gives back a permission that was not used.
+   */
+  public synchronized void release() {
+    if (state == State.HALF_OPEN && probes > probeSuccesses) {
+      probes--;
+    }
+  }
+
+  /**
+   * Takes note of a delivery that worked.
+   */
+  public synchronized void onSuccess() {
+    lastCall = clock.getAsLong();
+    if (state == State.HALF_OPEN) {
+      if (++probeSuccesses >= settings.halfOpenCalls()) {
+        state = State.CLOSED;
+        reset();
+      }
+    } else if (state == State.CLOSED) {
+      record(false);
+    }
+  }
+
+  /**
+   * Takes note of a delivery that failed.
+   */
+  public synchronized void onFailure() {
+    lastCall = clock.getAsLong();
+    if (state == State.HALF_OPEN) {
+      open();
+    } else if (state == State.CLOSED) {
+      record(true);
+      if (calls >= settings.minimumCalls() && failures >= settings.failureRate() * calls) {
+        open();
+      }
+    }
+    // outcomes of deliveries started before the circuit opened don't matter anymore
+  }
+
+  /**
+   * Returns the current state of this circuit. An open circuit is only reported as half open
+   * after a probe is allowed.
+   *
+   * @return the state of this circuit.
+   */
+  public synchronized State state() {
+    return state;
+  }
+
+  /**
+   * Checks if this circuit is closed and was not used for the given time, so forgetting it
+   * makes no difference besides its last outcomes.
+   *
+   * @param nanos how long the circuit should be unused, in nanoseconds
+   * @return {@code true} if the circuit is closed and was not used for that long.
+   */
+  public synchronized boolean isIdle(long nanos) {
+    return state == State.CLOSED && clock.getAsLong() - lastCall >= nanos;
+  }
+
+  private void record(boolean failure) {
+    if (calls == outcomes.length) {
+      if (outcomes[position]) failures--;
+    } else {
+      calls++;
+    }
+    outcomes[position] = failure;
+    if (failure) failures++;
+    position = (position + 1) % outcomes.length;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+    reset();
+  }
+
+  private void reset() {
+    position = 0;
+    calls = 0;
+    failures = 0;
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.CircuitBreakerSettings;
+import io.backpackcloud.captain_hook.Notification;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the circuit breakers of a channel: one for the whole channel and another one for
+ * each target, if the channel defines those settings.
+ * <p>
+ * A notification is only fired if both circuits allow it. The circuits of targets that are
+ * closed and not used for a while are dropped from time to time, so targets seen only once
+ * don't pile up.
+ */
+public class CircuitBreakers {
+
+  private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+  private final CircuitBreaker channel;
+  private final CircuitBreakerSettings targetSettings;
+  private final Map<String, CircuitBreaker> targets;
+  private final LongSupplier clock;
+  private final AtomicLong nextSweep;
+
+  private Counter rejections;
+
+  public CircuitBreakers(ChannelSettings settings) {
+    this(settings, System::nanoTime);
+  }
+
+  /**
+   * Creates the circuit breakers of a channel using the given clock.
+   *
+   * @param settings the settings of the channel
+   * @param clock    the source of the current time in nanoseconds
+   */
+  public CircuitBreakers(ChannelSettings settings, LongSupplier clock) {
+    this.channel = settings.circuitBreaker()
+        .map(circuitSettings -> new CircuitBreaker(circuitSettings, clock))
+        .orElse(null);
+    this.targetSettings = settings.targetCircuitBreaker().orElse(null);
+    this.targets = new ConcurrentHashMap<>();
+    this.clock = clock;
+    this.nextSweep = new AtomicLong(clock.getAsLong() + SWEEP_INTERVAL);
+  }
+
+  /**
+   * Publishes the state of the channel circuit and how many notifications were refused.
+   *
+   * @param registry the registry for the metrics
+   * @param name     the name of the channel
+   * @return this object
+   */
+  public CircuitBreakers meter(MetricRegistry registry, String name) {
+    Tag tag = new Tag("channel", name);
+    this.rejections = registry.counter("circuitRejections", tag);
+    if (channel != null) {
+      registry.register(Metadata.builder()
+          .withName("circuitState")
+          .withDescription("The state of the channel circuit (0 for closed, 1 for half open and 2 for open)")
+          .withType(MetricType.GAUGE)
+          .build(), (Gauge<Integer>) () -> channel.state().ordinal(), tag);
+    }
+    return this;
+  }
+
+  /**
+   * Asks for permission to fire the given notification. Every permission given should be
+   * followed by a call to {@link #onSuccess(Notification)} or {@link #onFailure(Notification)}.
+   *
+   * @param notification the notification to fire
+   * @return {@code true} if the notification can be fired.
+   */
+  public boolean tryAcquire(Notification notification) {
+    sweep();
+    if (channel != null && !channel.tryAcquire()) {
+      return reject();
+    }
+    CircuitBreaker target = target(notification);
+    if (target != null && !target.tryAcquire()) {
+      if (channel != null) channel.release();
+      return reject();
+    }
+    return true;
+  }
+
+  private boolean reject() {
+    if (rejections != null) rejections.inc();
+    return false;
+  }
+
+  /**
+   * Takes note that the given notification was delivered.
+   *
+   * @param notification the notification delivered
+   */
+  public void onSuccess(Notification notification) {
+    if (channel != null) channel.onSuccess();
+    CircuitBreaker target = target(notification);
+    if (target != null) target.onSuccess();
+  }
+
+  /**
+   * Takes note that the given notification failed.
+   *
+   * @param notification the notification not delivered
+   */
+  public void onFailure(Notification notification) {
+    if (channel != null) channel.onFailure();
+    CircuitBreaker target = target(notification);
+    if (target != null) target.onFailure();
+  }
+
+  private CircuitBreaker target(Notification notification) {
+    if (targetSettings == null) return null;
+    return targets.computeIfAbsent(notification.target(), t -> new CircuitBreaker(targetSettings, clock));
+  }
+
+  private void sweep() {
+    if (targetSettings == null) return;
+    long now = clock.getAsLong();
+    long due = nextSweep.get();
+    if (now - due >= 0 && nextSweep.compareAndSet(due, now + SWEEP_INTERVAL)) {
+      targets.keySet().forEach(target ->
+          targets.computeIfPresent(target, (key, circuit) -> circuit.isIdle(SWEEP_INTERVAL) ? null : circuit));
+    }
+  }
+
+  /**
+   * Returns how many target circuits are being kept.
+   *
+   * @return the number of target circuits.
+   */
+  int targets() {
+    return targets.size();
+  }
+
+  /**
+   * Checks if the channel circuit is not open.
+   *
+   * @return {@code false} if the channel is refusing notifications.
+   */
+  public boolean isUp() {
+    return channel == null || channel.state() != CircuitBreaker.State.OPEN;
+  }
+
+  /**
+   * Checks if this object has any circuit at all.
+   *
+   * @return {@code true} if notifications might be refused.
+   */
+  public boolean isActive() {
+    return channel != null || targetSettings != null;
+  }
+
+}
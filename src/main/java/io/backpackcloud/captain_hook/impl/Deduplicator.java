@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Event;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the events seen in a time window so the same event arriving again, like a
+ * webhook retried by its source, can be dropped before being matched.
+ * <p>
+ * Events are remembered by a 64 bit hash, either of the whole event or of its name and a
+ * given set of labels, so the memory used doesn't depend on the size of the events. Events
+ * missing any of those labels are remembered by the whole event. The
+ * window starts when an event is first seen and is not extended by its duplicates. When
+ * the cache is full, the oldest events are forgotten first.
+ */
+public class Deduplicator {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final long window;
+  private final int maxSize;
+  private final List<String> labels;
+  private final LongSupplier clock;
+  // insertion order is also expiration order since every event gets the same window
+  private final LinkedHashMap<Long, Long> seen;
+
+  private Counter hits;
+  private Counter misses;
+
+  /**
+   * Creates a new deduplicator.
+   *
+   * @param window  how long an event is remembered (zero or less disables the deduplication)
+   * @param maxSize how many events can be remembered at the same time
+   * @param labels  the labels that identify an event along with its name (if empty, the whole
+   *                event is used)
+   */
+  public Deduplicator(Duration window, int maxSize, List<String> labels) {
+    this(window, maxSize, labels, System::nanoTime);
+  }
+
+  /**
+   * Creates a new deduplicator using the given clock.
+   *
+   * @param window  how long an event is remembered (zero or less disables the deduplication)
+   * @param maxSize how many events can be remembered at the same time
+   * @param labels  the labels that identify an event along with its name (if empty, the whole
+   *                event is used)
+   * @param clock   the source of the current time in nanoseconds
+   */
+  public Deduplicator(Duration window, int maxSize, List<String> labels, LongSupplier clock) {
+    this.window = window.toNanos();
+    this.maxSize = maxSize;
+    this.labels = new ArrayList<>(labels);
+    this.clock = clock;
+    this.seen = new LinkedHashMap<Long, Long>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+        return size() > Deduplicator.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Publishes how many events were dropped and accepted and how many are remembered.
+   *
+   * @param registry the registry for the metrics
+   * @return this deduplicator
+   */
+  public Deduplicator meter(MetricRegistry registry) {
+    this.hits = registry.counter("dedupHits");
+    this.misses = registry.counter("dedupMisses");
+    registry.register(Metadata.builder()
+        .withName("dedupSize")
+        .withDescription("How many events are remembered to drop their duplicates")
+        .withType(MetricType.GAUGE)
+        .build(), (Gauge<Integer>) this::size);
+    return this;
+  }
+
+  /**
+   * Checks if the given event was already seen in the window, remembering it otherwise.
+   *
+   * @param event the event to check
+   * @return {@code true} if the event should be dropped.
+   */
+  public boolean isDuplicate(Event event) {
+    if (!isEnabled()) return false;
+
+    long key = hash(event);
+    long now = clock.getAsLong();
+    boolean duplicate;
+
+    synchronized (seen) {
+      evictExpired(now);
+      duplicate = seen.putIfAbsent(key, now + window) != null;
+    }
+
+    Counter counter = duplicate ? hits : misses;
+    if (counter != null) counter.inc();
+    return duplicate;
+  }
+
+  private void evictExpired(long now) {
+    Iterator<Long> expirations = seen.values().iterator();
+    while (expirations.hasNext() && expirations.next() - now <= 0) {
+      expirations.remove();
+    }
+  }
+
+  /**
+   * Checks if events are being deduplicated at all.
+   *
+   * @return {@code true} if this deduplicator has a window.
+   */
+  public boolean isEnabled() {
+    return window > 0 && maxSize > 0;
+  }
+
+  /**
+   * Returns how many events are currently remembered, including the expired ones not
+   * evicted yet.
+   *
+   * @return the size of the cache.
+   */
+  public int size() {
+    synchronized (seen) {
+      return seen.size();
+    }
+  }
+
+  private long hash(Event event) {
+    long hash = hash(FNV_OFFSET, event.name());
+    // events lacking the labels can't be told apart by them, so the whole event is used
+    if (labels.isEmpty() || !hasLabels(event)) {
+      hash = hash(hash, event.message());
+      hash = hash(hash, event.title().orElse(null));
+      hash = hash(hash, event.url().orElse(null));
+      // labels are combined regardless of their order
+      long[] labelsHash = { 0 };
+      event.labels().forEach((label, value) -> labelsHash[0] += hash(hash(FNV_OFFSET, label), value));
+      return mix(hash ^ labelsHash[0]);
+    }
+    for (String label : labels) {
+      hash = hash(hash, event.labels().get(label).orElse(null));
+    }
+    return mix(hash);
+  }
+
+  private boolean hasLabels(Event event) {
+    for (String label : labels) {
+      if (!event.labels().get(label).isPresent()) return false;
+    }
+    return true;
+  }
+
+  private static long hash(long hash, String value) {
+    if (value == null) {
+      // keeps a missing value apart from an empty one
+      return (hash ^ 0xff) * FNV_PRIME;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    }
+    // separates consecutive values so "ab" + "c" differs from "a" + "bc"
+    return (hash ^ 0xfe) * FNV_PRIME;
+  }
+
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+}
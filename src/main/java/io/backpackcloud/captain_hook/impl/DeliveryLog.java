@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the time of the last delivery that worked and the last one that failed in each
+ * channel, so the health of a channel can be told from its own traffic instead of asking
+ * its destination.
+ */
+public class DeliveryLog {
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final LongSupplier clock;
+
+  public DeliveryLog() {
+    this(System::nanoTime);
+  }
+
+  /**
+   * Creates a new log using the given clock.
+   *
+   * @param clock the source of the current time in nanoseconds
+   */
+  public DeliveryLog(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Takes note of a delivery in the given channel.
+   *
+   * @param channel the channel of the delivery
+   * @param worked  if the notification was delivered
+   */
+  public void record(String channel, boolean worked) {
+    Entry entry = entries.computeIfAbsent(channel, c -> new Entry());
+    long now = clock.getAsLong();
+    if (worked) {
+      entry.lastSuccess = now;
+    } else {
+      entry.lastFailure = now;
+    }
+  }
+
+  /**
+   * Tells if the last delivery in the given channel worked, as long as it happened within
+   * the given time.
+   *
+   * @param channel the channel to check
+   * @param within  how old the delivery can be
+   * @return if the last recent delivery worked or an empty optional if there was no recent
+   * delivery.
+   */
+  public Optional<Boolean> lastOutcome(String channel, Duration within) {
+    Entry entry = entries.get(channel);
+    if (entry == null) return Optional.empty();
+
+    long since = clock.getAsLong() - within.toNanos();
+    long success = entry.lastSuccess;
+    long failure = entry.lastFailure;
+    boolean recentSuccess = success != 0 && success - since > 0;
+    boolean recentFailure = failure != 0 && failure - since > 0;
+
+    if (!recentSuccess && !recentFailure) return Optional.empty();
+    if (recentSuccess && recentFailure) return Optional.of(success - failure > 0);
+    return Optional.of(recentSuccess);
+  }
+
+  private static class Entry {
+
+    private volatile long lastSuccess;
+    private volatile long lastFailure;
+
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Digest;
+import io.backpackcloud.captain_hook.Notification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds notifications according to their digests and passes the summaries along when
+ * the windows end or the digests are full.
+ */
+public class Digester {
+
+  private final Consumer<Notification> sink;
+  private final Map<List<Object>, List<Notification>> batches = new HashMap<>();
+  private ScheduledExecutorService timer;
+
+  /**
+   * Creates a new digester.
+   *
+   * @param sink the consumer of the summarized notifications
+   */
+  public Digester(Consumer<Notification> sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * Holds the given notification in the digest for its destination.
+   *
+   * @param digest       the digest to use
+   * @param notification the notification to hold
+   */
+  public void add(Digest digest, Notification notification) {
+    List<Object> key = Arrays.asList(digest, notification.destination());
+    List<Notification> full = null;
+
+    synchronized (this) {
+      List<Notification> batch = batches.get(key);
+      if (batch == null) {
+        List<Notification> newBatch = new ArrayList<>();
+        batch = newBatch;
+        batches.put(key, batch);
+        timer().schedule(() -> flush(digest, key, newBatch), digest.window().toMillis(), TimeUnit.MILLISECONDS);
+      }
+      batch.add(notification);
+      if (batch.size() >= digest.maxSize()) {
+        full = batches.remove(key);
+      }
+    }
+
+    if (full != null) {
+      sink.accept(digest.summarize(notification.destination(), full));
+    }
+  }
+
+  private void flush(Digest digest, List<Object> key, List<Notification> batch) {
+    synchronized (this) {
+      // the batch might have been flushed already for being full
+      if (!batches.remove(key, batch)) return;
+    }
+    sink.accept(digest.summarize(batch.get(0).destination(), batch));
+  }
+
+  /**
+   * Passes along every digest still open, without waiting for their windows to end.
+   */
+  public void flush() {
+    Map<List<Object>, List<Notification>> pending;
+    synchronized (this) {
+      pending = new HashMap<>(batches);
+      batches.clear();
+      if (timer != null) timer.shutdownNow();
+      timer = null;
+    }
+    pending.forEach((key, batch) -> sink.accept(((Digest) key.get(0)).summarize(batch.get(0).destination(), batch)));
+  }
+
+  private ScheduledExecutorService timer() {
+    if (timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "digester");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return timer;
+  }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import io.backpackcloud.trugger.element.ElementCopy;
+import io.backpackcloud.trugger.element.Elements;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template engine backed by Freemarker.
+ * <p>
+ * Inline templates are compiled once and kept in a bounded cache keyed by their source, so
+ * the same template coming from a mapping or a transmitter doesn't need to be parsed again.
+ * When the cache is full, the oldest compiled templates are evicted first. Templates loaded
+ * from {@code .ftl} files are cached by Freemarker itself.
+ * <p>
+ * Strings without any interpolation or directive are treated as literals and never reach
+ * Freemarker.
+ */
+public class FreemarkerTemplateEngine implements TemplateEngine {
+
+  private static final Logger logger = Logger.getLogger(FreemarkerTemplateEngine.class);
+
+  private static final String[] MARKERS = { "${", "#{", "<#", "</#", "<@", "</@" };
+
+  // constructions that can reach variables without naming them
+  private static final String[] OPAQUE = {
+      ".vars", ".data_model", ".globals", ".main", ".namespace", "?eval", "?interpret", "<#include", "<#import"
+  };
+
+  private static final Pattern IDENTIFIER = Pattern.compile("[\\p{L}_$@][\\p{L}\\p{N}_$@]*");
+
+  private static final CompiledTemplate NULL_TEMPLATE = new Literal(null);
+
+  private final Configuration configuration;
+  private final int cacheSize;
+
+  private final Map<String, CompiledTemplate> cache;
+  private final Queue<String> evictionQueue;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a new engine.
+   *
+   * @param configuration the Freemarker configuration to use
+   * @param cacheSize     the maximum number of inline templates to keep compiled
+   *                      (zero or less disables the cache)
+   */
+  public FreemarkerTemplateEngine(Configuration configuration, int cacheSize) {
+    this.configuration = configuration;
+    this.cacheSize = cacheSize;
+    this.cache = new ConcurrentHashMap<>();
+    this.evictionQueue = new ConcurrentLinkedQueue<>();
+  }
+
+  @Override
+  public String evaluate(String templateString, Map<String, ?> context) {
+    return compile(templateString).evaluate(context);
+  }
+
+  @Override
+  public Map evaluate(Map data, Map<String, ?> context) {
+    Map<String, ?> result = new HashMap<>(context.size());
+
+    Elements.copy()
+        .from(data)
+        .notNull()
+        .map(copy -> evalTemplate(copy, context))
+        .to(result);
+
+    return result;
+  }
+
+  private Object evalTemplate(ElementCopy copy, Map<String, ?> context) {
+    if (copy.value() instanceof CompiledTemplate) {
+      return ((CompiledTemplate) copy.value()).evaluate(context);
+    } else if (copy.value() instanceof String) {
+      return evaluate((String) copy.value(), context);
+    } else if (copy.value() instanceof Map) {
+      Map result = new HashMap();
+      Elements.copy()
+          .from(copy.value())
+          .notNull()
+          .map(elementCopy -> evalTemplate(elementCopy, context))
+          .to(result);
+      return result;
+    }
+    return copy.value();
+  }
+
+  @Override
+  public CompiledTemplate compile(String templateString) {
+    if (templateString == null) return NULL_TEMPLATE;
+
+    if (templateString.endsWith(".ftl")) {
+      load(templateString);
+      // asks Freemarker every time so changes to the file are still picked up
+      return context -> process(load(templateString), context);
+    }
+
+    CompiledTemplate template = cache.get(templateString);
+    if (template != null) {
+      hits.increment();
+      return template;
+    }
+
+    misses.increment();
+    template = isLiteral(templateString) ? new Literal(templateString) : parse(templateString);
+
+    if (cacheSize > 0 && cache.putIfAbsent(templateString, template) == null) {
+      evictionQueue.offer(templateString);
+      while (cache.size() > cacheSize) {
+        String eldest = evictionQueue.poll();
+        if (eldest == null) break;
+        cache.remove(eldest);
+      }
+    }
+
+    return template;
+  }
+
+  @Override
+  public Map compile(Map data) {
+    Map result = new HashMap();
+
+    Elements.copy()
+        .from(data)
+        .notNull()
+        .map(this::compileTemplate)
+        .to(result);
+
+    return Collections.unmodifiableMap(result);
+  }
+
+  private Object compileTemplate(ElementCopy copy) {
+    if (copy.value() instanceof String) {
+      return compile((String) copy.value());
+    } else if (copy.value() instanceof Map) {
+      return compile((Map) copy.value());
+    }
+    return copy.value();
+  }
+
+  @Override
+  public boolean isLiteral(String template) {
+    if (template == null) return true;
+    if (template.endsWith(".ftl")) return false;
+    for (String marker : MARKERS) {
+      if (template.contains(marker)) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public Optional<Set<String>> variables(String template) {
+    if (isLiteral(template)) return Optional.of(Collections.emptySet());
+    if (template.endsWith(".ftl")) return Optional.empty();
+    for (String construction : OPAQUE) {
+      if (template.contains(construction)) return Optional.empty();
+    }
+
+    // every word is taken as a variable, which is a lot more than needed but never less
+    Set<String> variables = new HashSet<>();
+    Matcher matcher = IDENTIFIER.matcher(template);
+    while (matcher.find()) {
+      variables.add(matcher.group());
+    }
+    return Optional.of(variables);
+  }
+
+  private Template load(String name) {
+    try {
+      return configuration.getTemplate(name);
+    } catch (IOException e) {
+      logger.error("Error while loading template", e);
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private CompiledTemplate parse(String templateString) {
+    try {
+      Template template = new Template("template", new StringReader(templateString), configuration);
+      return context -> process(template, context);
+    } catch (IOException e) {
+      logger.error("Error while compiling template", e);
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private String process(Template template, Map<String, ?> context) {
+    Writer out = new StringWriter();
+
+    try {
+      template.process(context, out);
+    } catch (Exception e) {
+      logger.error("Error while processing template", e);
+      throw new UnbelievableException(e);
+    }
+
+    return out.toString();
+  }
+
+  /**
+   * Returns how many times an inline template was found already compiled.
+   *
+   * @return the number of cache hits.
+   */
+  public long cacheHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns how many times an inline template had to be compiled.
+   *
+   * @return the number of cache misses.
+   */
+  public long cacheMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns how many inline templates are currently compiled.
+   *
+   * @return the number of cached templates.
+   */
+  public int cacheSize() {
+    return cache.size();
+  }
+
+  /**
+   * A template without anything to evaluate.
+   */
+  private static class Literal implements CompiledTemplate {
+
+    private final String value;
+
+    private Literal(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String evaluate(Map<String, ?> context) {
+      return value;
+    }
+
+    @Override
+    public boolean isLiteral() {
+      return true;
+    }
+
+  }
+
+}
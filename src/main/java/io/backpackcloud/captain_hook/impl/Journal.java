@@ -0,0 +1,392 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.UnbelievableException;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of records stored in memory-mapped segment files.
+ * <p>
+ * Records are addressed by their offset, a position that keeps growing across the
+ * segments. Each record is written as its length, its checksum and its data, and a record
+ * never spans two segments. The length is written last, so a record is only visible after
+ * it is complete, and a torn record left by a crash is discarded when the journal is opened.
+ * <p>
+ * Appended records are forced to the disk by a single flusher thread. Writers waiting for
+ * their records to be durable are released together by the same force, so concurrent
+ * writers share the cost of syncing the files.
+ * <p>
+ * Readers acknowledge the offset they consumed up to. Segments before that offset are
+ * deleted and reading starts from there again when the journal is reopened.
+ */
+public class Journal implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(Journal.class);
+
+  private static final int HEADER = 8;
+  private static final String SUFFIX = ".segment";
+
+  private final Path dir;
+  private final int segmentSize;
+  private final NavigableMap<Long, MappedByteBuffer> segments;
+  private final MappedByteBuffer offsets;
+
+  private long head;
+  private int position;
+  private long acked;
+
+  private final Object flushLock = new Object();
+  private long requested;
+  private long flushed;
+  private boolean closed;
+  private final Thread flusher;
+
+  /**
+   * Opens the journal stored in the given directory, creating it if needed.
+   *
+   * @param dir         the directory of the segment files
+   * @param segmentSize the size of each segment file in bytes
+   */
+  public Journal(Path dir, int segmentSize) {
+    if (segmentSize <= HEADER) {
+      throw new UnbelievableException("Segments should have more than " + HEADER + " bytes");
+    }
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.segments = new TreeMap<>();
+
+    try {
+      Files.createDirectories(dir);
+      this.offsets = map(dir.resolve("offsets"), Long.BYTES);
+      try (Stream<Path> files = Files.list(dir)) {
+        files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+            .forEach(file -> {
+              String name = file.getFileName().toString();
+              long index = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+              segments.put(index, map(file, segmentSize));
+            });
+      }
+    } catch (IOException e) {
+      logger.error("Error while opening the journal", e);
+      throw new UnbelievableException(e);
+    }
+
+    this.acked = offsets.getLong(0);
+    if (segments.isEmpty()) {
+      this.head = acked / segmentSize;
+      segments.put(head, map(segmentFile(head), segmentSize));
+      this.position = (int) (acked % segmentSize);
+    } else {
+      this.head = segments.lastKey();
+      this.position = recover(segments.get(head));
+    }
+    this.requested = offset();
+    this.flushed = requested;
+
+    logger.infov("Journal opened at {0} with {1} bytes pending", dir, offset() - acked);
+
+    this.flusher = new Thread(this::flushLoop, "journal-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  private MappedByteBuffer map(Path file, int size) {
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      logger.error("Error while mapping " + file, e);
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private Path segmentFile(long index) {
+    return dir.resolve(String.format("%020d%s", index, SUFFIX));
+  }
+
+  private int recover(MappedByteBuffer segment) {
+    int pos = 0;
+    while (pos + HEADER <= segmentSize) {
+      int length = segment.getInt(pos);
+      if (length <= 0 || pos + HEADER + length > segmentSize) break;
+      if (checksum(segment, pos + HEADER, length) != segment.getInt(pos + 4)) {
+        logger.warnv("Discarding a torn record at {0}", head * segmentSize + pos);
+        segment.putInt(pos, 0);
+        break;
+      }
+      pos += HEADER + length;
+    }
+    return pos;
+  }
+
+  private static int checksum(MappedByteBuffer segment, int from, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(segment.duplicate().position(from).limit(from + length));
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Appends the given data to this journal. The data is not guaranteed to be on the disk
+   * until {@link #sync(long)} returns.
+   *
+   * @param data the data to append
+   * @return the offset right after the appended record
+   */
+  public synchronized long append(byte[] data) {
+    int size = HEADER + data.length;
+    if (size > segmentSize) {
+      throw new UnbelievableException("Record of " + data.length + " bytes doesn't fit in a segment");
+    }
+    if (position + size > segmentSize) {
+      head++;
+      position = 0;
+      segments.put(head, map(segmentFile(head), segmentSize));
+    }
+
+    MappedByteBuffer segment = segments.get(head);
+    segment.position(position + HEADER);
+    segment.put(data);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    segment.putInt(position + 4, (int) crc.getValue());
+    segment.putInt(position, data.length);
+
+    position += size;
+    return offset();
+  }
+
+  /**
+   * Waits until every record before the given offset is on the disk.
+   *
+   * @param offset the offset to wait for
+   */
+  public void sync(long offset) {
+    synchronized (flushLock) {
+      if (offset > requested) {
+        requested = offset;
+        flushLock.notifyAll();
+      }
+      while (flushed < offset && !closed) {
+        try {
+          flushLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UnbelievableException(e);
+        }
+      }
+    }
+  }
+
+  private void flushLoop() {
+    while (true) {
+      long target;
+      synchronized (flushLock) {
+        while (flushed >= requested && !closed) {
+          try {
+            flushLock.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (closed) return;
+        target = requested;
+      }
+
+      force(flushed, target);
+
+      synchronized (flushLock) {
+        flushed = target;
+        flushLock.notifyAll();
+      }
+    }
+  }
+
+  private void force(long from, long to) {
+    MappedByteBuffer[] pending;
+    synchronized (this) {
+      long first = Math.max(from / segmentSize, segments.firstKey());
+      long last = (to - 1) / segmentSize;
+      // the records might have been consumed and their segments deleted already
+      if (first > last) return;
+      pending = segments.subMap(first, true, last, true).values()
+          .toArray(new MappedByteBuffer[0]);
+    }
+    for (MappedByteBuffer segment : pending) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Reads the record at the given offset.
+   *
+   * @param offset the offset of the record, which should be either the offset of the last
+   *               acknowledged record or the offset returned by a previous read
+   * @return the record or {@code null} if there is nothing to read at the given offset yet.
+   */
+  public synchronized Record read(long offset) {
+    long index = offset / segmentSize;
+    int pos = (int) (offset % segmentSize);
+    MappedByteBuffer segment = segments.get(index);
+
+    if (segment == null) {
+      Map.Entry<Long, MappedByteBuffer> next = segments.higherEntry(index);
+      return next == null ? null : read(next.getKey() * segmentSize);
+    }
+
+    int length = pos + HEADER <= segmentSize ? segment.getInt(pos) : 0;
+    if (length <= 0) {
+      // the rest of a full segment is left empty
+      return index < head ? read((index + 1) * segmentSize) : null;
+    }
+
+    byte[] data = new byte[length];
+    segment.duplicate().position(pos + HEADER).get(data);
+    return new Record(offset, offset + HEADER + length, data);
+  }
+
+  /**
+   * Acknowledges every record before the given offset. Segments that only hold
+   * acknowledged records are deleted.
+   *
+   * @param offset the offset right after the last consumed record
+   */
+  public synchronized void acknowledge(long offset) {
+    acked = offset;
+    offsets.putLong(0, offset);
+
+    long index = offset / segmentSize;
+    while (segments.firstKey() < index) {
+      long first = segments.pollFirstEntry().getKey();
+      try {
+        Files.deleteIfExists(segmentFile(first));
+      } catch (IOException e) {
+        logger.warnv("Could not delete the segment {0}", first);
+      }
+    }
+  }
+
+  /**
+   * Returns the offset right after the last acknowledged record.
+   *
+   * @return the acknowledged offset.
+   */
+  public synchronized long acknowledged() {
+    return acked;
+  }
+
+  /**
+   * Returns the offset of the next record to append.
+   *
+   * @return the offset of the next record to append.
+   */
+  public synchronized long offset() {
+    return head * segmentSize + position;
+  }
+
+  /**
+   * Returns how many bytes were appended but not acknowledged yet.
+   *
+   * @return the number of bytes waiting to be consumed.
+   */
+  public synchronized long backlog() {
+    return offset() - acked;
+  }
+
+  @Override
+  public void close() {
+    synchronized (flushLock) {
+      closed = true;
+      flushLock.notifyAll();
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      segments.values().forEach(MappedByteBuffer::force);
+      offsets.force();
+    }
+  }
+
+  /**
+   * A record read from the journal.
+   */
+  public static class Record {
+
+    private final long offset;
+    private final long next;
+    private final byte[] data;
+
+    private Record(long offset, long next, byte[] data) {
+      this.offset = offset;
+      this.next = next;
+      this.data = data;
+    }
+
+    /**
+     * Returns the offset of this record.
+     *
+     * @return the offset of this record.
+     */
+    public long offset() {
+      return offset;
+    }
+
+    /**
+     * Returns the offset of the record after this one.
+     *
+     * @return the offset of the next record.
+     */
+    public long next() {
+      return next;
+    }
+
+    /**
+     * Returns the data of this record.
+     *
+     * @return the data of this record.
+     */
+    public byte[] data() {
+      return data;
+    }
+
+  }
+
+}
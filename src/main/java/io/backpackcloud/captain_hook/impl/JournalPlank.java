@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Plank;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A plank that writes every notification to a {@link Journal} before it is delivered.
+ * <p>
+ * Walking the plank only returns after the notification is on the disk. A relay thread
+ * reads the journal in order and passes each notification to the deck, which tells when it's
+ * done with the notification. Notifications are acknowledged in the order they were written,
+ * once the deck is done with them and with every notification before them, so notifications
+ * not acknowledged before a restart are delivered again: deliveries happen at least once.
+ * <p>
+ * Notifications the deck fails to take are passed to it again after a while, waiting longer
+ * each time, and are never acknowledged before the deck is done with them.
+ * <p>
+ * Only a window of notifications can be waiting for the deck at the same time, the rest of
+ * them wait on the disk.
+ */
+public class JournalPlank implements Plank, Closeable {
+
+  private static final Logger logger = Logger.getLogger(JournalPlank.class);
+
+  private static final long MIN_BACKOFF = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(30);
+
+  private final Journal journal;
+  private final Function<Notification, CompletionStage<Void>> deck;
+  private final Semaphore window;
+  private final Deque<Pending> pending = new ArrayDeque<>();
+  private final Queue<Pending> retries = new ConcurrentLinkedQueue<>();
+  private final Thread relay;
+
+  private final Lock lock = new ReentrantLock();
+  private final Condition walked = lock.newCondition();
+  private volatile boolean closed;
+
+  /**
+   * Creates a new plank.
+   *
+   * @param journal the journal to write the notifications
+   * @param deck    the deck that delivers the notifications
+   * @param window  how many notifications can be waiting for the deck
+   */
+  public JournalPlank(Journal journal, Function<Notification, CompletionStage<Void>> deck, int window) {
+    this.journal = journal;
+    this.deck = deck;
+    this.window = new Semaphore(window);
+    this.relay = new Thread(this::relay, "journal-relay");
+    this.relay.setDaemon(true);
+    this.relay.start();
+  }
+
+  @Override
+  public void walk(Notification notification) {
+    journal.sync(journal.append(NotificationFormat.encode(notification)));
+    lock.lock();
+    try {
+      walked.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void relay() {
+    long offset = journal.acknowledged();
+    while (!closed) {
+      retry();
+      Journal.Record record = journal.read(offset);
+      if (record == null) {
+        await();
+        continue;
+      }
+      try {
+        if (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+      } catch (InterruptedException e) {
+        return;
+      }
+      Pending entry = new Pending(record);
+      synchronized (pending) {
+        pending.addLast(entry);
+      }
+      offset = record.next();
+      relay(entry);
+    }
+  }
+
+  private void relay(Pending entry) {
+    try {
+      deck.apply(NotificationFormat.decode(entry.record.data()))
+          .whenComplete((result, failure) -> {
+            if (failure == null) {
+              done(entry);
+            } else {
+              failed(entry, failure);
+            }
+          });
+    } catch (Exception e) {
+      failed(entry, e);
+    }
+  }
+
+  private void failed(Pending entry, Throwable failure) {
+    long backoff = Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(entry.attempts, 20));
+    entry.attempts++;
+    entry.due = System.nanoTime() + backoff;
+    logger.errorv(failure, "Error while delivering notification at {0}, trying again in {1}ms",
+        entry.record.offset(), TimeUnit.NANOSECONDS.toMillis(backoff));
+    retries.offer(entry);
+  }
+
+  private void retry() {
+    long now = System.nanoTime();
+    for (Iterator<Pending> iterator = retries.iterator(); iterator.hasNext(); ) {
+      Pending entry = iterator.next();
+      if (now - entry.due >= 0) {
+        iterator.remove();
+        relay(entry);
+      }
+    }
+  }
+
+  // acknowledges the notifications the deck is done with, as long as nothing before them is pending
+  private void done(Pending entry) {
+    synchronized (pending) {
+      entry.done = true;
+      long offset = -1;
+      while (!pending.isEmpty() && pending.peekFirst().done) {
+        offset = pending.pollFirst().record.next();
+        window.release();
+      }
+      if (offset >= 0 && !closed) {
+        journal.acknowledge(offset);
+      }
+    }
+  }
+
+  private void await() {
+    lock.lock();
+    try {
+      // the timeout covers a walk signaling between the read and the wait
+      walked.await(100, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      closed = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns how many bytes of notifications are waiting to be delivered.
+   *
+   * @return the size of the backlog in bytes.
+   */
+  public long backlog() {
+    return journal.backlog();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    relay.interrupt();
+    try {
+      relay.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // notifications still pending are left for the next start
+    synchronized (pending) {
+      journal.close();
+    }
+  }
+
+  private static class Pending {
+
+    private final Journal.Record record;
+    private boolean done;
+    private int attempts;
+    private long due;
+
+    private Pending(Journal.Record record) {
+      this.record = record;
+    }
+
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A cannon that measures the deliveries of another one.
+ * <p>
+ * Deliveries are tagged with the name of the connection pool they go through, so the
+ * number of deliveries in flight shows how busy each pool is and the delivery time
+ * includes the time waiting for a free connection.
+ */
+public class MeteredCannon implements Cannon {
+
+  private final Cannon cannon;
+  private final MetricRegistry registry;
+  private final ConcurrentGauge inFlight;
+  private final Timer deliveryTime;
+
+  public MeteredCannon(Cannon cannon, MetricRegistry registry, String pool) {
+    Tag tag = new Tag("pool", pool);
+    this.cannon = cannon;
+    this.registry = registry;
+    this.inFlight = registry.concurrentGauge("deliveriesInFlight", tag);
+    this.deliveryTime = registry.timer("deliveryTime", tag);
+  }
+
+  @Override
+  public Cannon withConnection(String name, ConnectionSettings settings) {
+    return new MeteredCannon(cannon.withConnection(name, settings), registry, name);
+  }
+
+  @Override
+  public LoadedCannon load(Notification notification) {
+    return metered(cannon.load(notification));
+  }
+
+  @Override
+  public LoadedCannon load(List<Notification> notifications) {
+    return metered(cannon.load(notifications));
+  }
+
+  private LoadedCannon metered(LoadedCannon loadedCannon) {
+    return new LoadedCannon() {
+      @Override
+      public LoadedCannon add(Map<String, ?> headers) {
+        loadedCannon.add(headers);
+        return this;
+      }
+
+      @Override
+      public ReadyCannon aimAt(String url) {
+        return metered(loadedCannon.aimAt(url));
+      }
+
+      @Override
+      public ReadyCannon aimAt(TemplateEngine.CompiledTemplate url) {
+        return metered(loadedCannon.aimAt(url));
+      }
+    };
+  }
+
+  private ReadyCannon metered(ReadyCannon readyCannon) {
+    return new ReadyCannon() {
+      @Override
+      public Response fire(Map<String, ?> payload) {
+        inFlight.inc();
+        Timer.Context context = deliveryTime.time();
+        try {
+          return readyCannon.fire(payload);
+        } finally {
+          context.stop();
+          inFlight.dec();
+        }
+      }
+
+      @Override
+      public CompletionStage<Response> fireAsync(Map<String, ?> payload) {
+        inFlight.inc();
+        Timer.Context context = deliveryTime.time();
+        return readyCannon.fireAsync(payload)
+            .whenComplete((response, failure) -> {
+              context.stop();
+              inFlight.dec();
+            });
+      }
+    };
+  }
+
+}
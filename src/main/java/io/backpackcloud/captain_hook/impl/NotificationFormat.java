@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.UnbelievableException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary format for notifications, used where they need to be stored or passed
+ * around as bytes.
+ * <p>
+ * Strings are written as their UTF-8 bytes prefixed by the length, or {@code -1} for
+ * {@code null}, and the labels are written as a count followed by their keys and values.
+ */
+public final class NotificationFormat {
+
+  private static final byte VERSION = 1;
+
+  private NotificationFormat() {
+
+  }
+
+  /**
+   * Encodes the given notification.
+   *
+   * @param notification the notification to encode
+   * @return the bytes representing the notification.
+   */
+  public static byte[] encode(Notification notification) {
+    List<byte[]> strings = new ArrayList<>();
+    strings.add(bytes(notification.title().orElse(null)));
+    strings.add(bytes(notification.message()));
+    strings.add(bytes(notification.url().orElse(null)));
+    strings.add(bytes(notification.destination().channel()));
+    strings.add(bytes(notification.destination().id()));
+
+    Map<String, String> labels = notification.labels() == null ? null : notification.labels().values();
+    if (labels != null) {
+      labels.forEach((key, value) -> {
+        strings.add(bytes(key));
+        strings.add(bytes(value));
+      });
+    }
+
+    int size = 1 + 1 + 4;
+    for (byte[] string : strings) {
+      size += 4 + (string == null ? 0 : string.length);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(VERSION);
+    buffer.put((byte) notification.priority().ordinal());
+    for (int i = 0; i < 5; i++) {
+      put(buffer, strings.get(i));
+    }
+    buffer.putInt(labels == null ? -1 : labels.size());
+    for (int i = 5; i < strings.size(); i++) {
+      put(buffer, strings.get(i));
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a notification from the given bytes.
+   *
+   * @param bytes the bytes representing the notification
+   * @return the decoded notification.
+   */
+  public static Notification decode(byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Decodes a notification from the current position of the given buffer.
+   *
+   * @param buffer the buffer holding the notification
+   * @return the decoded notification.
+   */
+  public static Notification decode(ByteBuffer buffer) {
+    byte version = buffer.get();
+    if (version != VERSION) {
+      throw new UnbelievableException("Unknown notification format version: " + version);
+    }
+    Priority priority = Priority.values()[buffer.get()];
+    String title = string(buffer);
+    String message = string(buffer);
+    String url = string(buffer);
+    Address destination = new Address(string(buffer), string(buffer));
+
+    LabelSet labels = null;
+    int count = buffer.getInt();
+    if (count >= 0) {
+      Map<String, String> values = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        values.put(string(buffer), string(buffer));
+      }
+      labels = new LabelSet(values);
+    }
+
+    return new Notification(title, message, url, destination, priority, labels);
+  }
+
+  private static byte[] bytes(String string) {
+    return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void put(ByteBuffer buffer, byte[] string) {
+    if (string == null) {
+      buffer.putInt(-1);
+    } else {
+      buffer.putInt(string.length);
+      buffer.put(string);
+    }
+  }
+
+  private static String string(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) return null;
+    if (!buffer.hasArray()) {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+    String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return string;
+  }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.backpackcloud.captain_hook.Mapper;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders payload templates straight to JSON.
+ * <p>
+ * The payload is walked while its templates are evaluated, so the results are written as
+ * they come instead of being collected in new maps and serialized afterwards. Anything
+ * that is not a template, a map, a number or a boolean is handed to the given mapper.
+ * <p>
+ * Rendering to a byte array goes through a buffer owned by the calling thread, which is
+ * reused by the next payload rendered in that thread.
+ */
+public class PayloadWriter {
+
+  private static final Logger logger = Logger.getLogger(PayloadWriter.class);
+
+  private static final JsonFactory factory = new JsonFactory();
+
+  // buffers bigger than this are not kept around after being used
+  private static final int MAX_POOLED_SIZE = 64 * 1024;
+
+  private static final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+
+  private final TemplateEngine templateEngine;
+  private final Mapper mapper;
+
+  public PayloadWriter(TemplateEngine templateEngine, Mapper mapper) {
+    this.templateEngine = templateEngine;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Renders the given payload as a JSON object.
+   *
+   * @param payload the payload containing the templates
+   * @param context the set of variables to use when evaluating the templates
+   * @return the JSON bytes
+   */
+  public byte[] render(Map<?, ?> payload, Map<String, ?> context) {
+    Output output = outputs.get();
+    try {
+      write(payload, context, output);
+      return output.toByteArray();
+    } finally {
+      output.recycle();
+    }
+  }
+
+  /**
+   * Renders the given payload once for each notification, as a JSON array.
+   *
+   * @param payload       the payload containing the templates
+   * @param notifications the notifications to render the payload for
+   * @return the JSON bytes
+   */
+  public byte[] render(Map<?, ?> payload, List<Notification> notifications) {
+    Output output = outputs.get();
+    try {
+      write(payload, notifications, output);
+      return output.toByteArray();
+    } finally {
+      output.recycle();
+    }
+  }
+
+  /**
+   * Writes the given payload as a JSON object to the given output.
+   *
+   * @param payload the payload containing the templates
+   * @param context the set of variables to use when evaluating the templates
+   * @param out     where to write the JSON
+   */
+  public void write(Map<?, ?> payload, Map<String, ?> context, OutputStream out) {
+    try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      writeObject(generator, payload, context);
+    } catch (IOException e) {
+      logger.error("Error while writing payload", e);
+      throw new UnbelievableException(e);
+    }
+  }
+
+  /**
+   * Writes the given payload once for each notification, as a JSON array, to the given output.
+   *
+   * @param payload       the payload containing the templates
+   * @param notifications the notifications to render the payload for
+   * @param out           where to write the JSON
+   */
+  public void write(Map<?, ?> payload, List<Notification> notifications, OutputStream out) {
+    boolean literal = templateEngine.isLiteral(payload);
+    try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.writeStartArray();
+      for (Notification notification : notifications) {
+        writeObject(generator, payload, literal ? Collections.emptyMap() : notification.context());
+      }
+      generator.writeEndArray();
+    } catch (IOException e) {
+      logger.error("Error while writing payload", e);
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private void writeObject(JsonGenerator generator, Map<?, ?> data, Map<String, ?> context) throws IOException {
+    generator.writeStartObject();
+    for (Map.Entry<?, ?> entry : data.entrySet()) {
+      // same as evaluating the payload, null values are left out
+      if (entry.getValue() == null) continue;
+      generator.writeFieldName(String.valueOf(entry.getKey()));
+      writeValue(generator, entry.getValue(), context);
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeValue(JsonGenerator generator, Object value, Map<String, ?> context) throws IOException {
+    if (value instanceof TemplateEngine.CompiledTemplate) {
+      writeString(generator, ((TemplateEngine.CompiledTemplate) value).evaluate(context));
+    } else if (value instanceof String) {
+      writeString(generator, templateEngine.evaluate((String) value, context));
+    } else if (value instanceof Map) {
+      writeObject(generator, (Map<?, ?>) value, context);
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else {
+      generator.writeRawValue(mapper.serialize(value));
+    }
+  }
+
+  private void writeString(JsonGenerator generator, String value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(value);
+    }
+  }
+
+  private static class Output extends ByteArrayOutputStream {
+
+    private Output() {
+      super(1024);
+    }
+
+    private void recycle() {
+      if (buf.length > MAX_POOLED_SIZE) {
+        outputs.remove();
+      } else {
+        reset();
+      }
+    }
+
+  }
+
+}
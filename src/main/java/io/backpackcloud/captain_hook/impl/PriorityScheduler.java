@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Schedules the dispatch of notifications based on their priority.
+ * <p>
+ * Each priority has its own queue and the worker threads take notifications from them in a
+ * weighted round robin: a priority with weight 8 is served 8 times for each time a priority
+ * with weight 1 is served, as long as both have notifications waiting. No queue is ever
+ * starved, but a flood of low priority notifications can't hold the high priority ones.
+ * <p>
+ * A scheduler without workers dispatches the notifications as soon as they are submitted.
+ * <p>
+ * Submitting a notification gives back the stage of its dispatch, which completes along with
+ * the stage returned by the dispatcher.
+ */
+public class PriorityScheduler {
+
+  private static final Logger logger = Logger.getLogger(PriorityScheduler.class);
+
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  private final Function<Notification, CompletionStage<Void>> dispatcher;
+  private final Queue<Entry>[] queues;
+  private final AtomicInteger[] depths;
+  private final int[] weights;
+  private final int[] credits;
+  private final Timer[] latencies;
+  private final Semaphore pending;
+  private final List<Thread> workers;
+
+  private volatile boolean stopped;
+
+  /**
+   * Creates a scheduler that dispatches notifications right away.
+   *
+   * @param dispatcher the dispatcher of the notifications
+   */
+  public PriorityScheduler(Function<Notification, CompletionStage<Void>> dispatcher) {
+    this(dispatcher, 0, Map.of());
+  }
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param dispatcher the dispatcher of the notifications
+   * @param threads    the number of worker threads
+   * @param weights    the weight of each priority, missing priorities have weight 1
+   */
+  public PriorityScheduler(Function<Notification, CompletionStage<Void>> dispatcher, int threads,
+                           Map<Priority, Integer> weights) {
+    this.dispatcher = dispatcher;
+    this.queues = new Queue[PRIORITIES.length];
+    this.depths = new AtomicInteger[PRIORITIES.length];
+    this.weights = new int[PRIORITIES.length];
+    this.credits = new int[PRIORITIES.length];
+    this.latencies = new Timer[PRIORITIES.length];
+    for (Priority priority : PRIORITIES) {
+      int i = priority.ordinal();
+      queues[i] = new ConcurrentLinkedQueue<>();
+      depths[i] = new AtomicInteger();
+      this.weights[i] = Math.max(1, weights.getOrDefault(priority, 1));
+    }
+    this.pending = new Semaphore(0);
+    this.workers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread worker = new Thread(this::work, "scheduler-" + i);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+  }
+
+  /**
+   * Publishes the depth of each queue and how long the notifications wait on them.
+   *
+   * @param registry the registry for the metrics
+   * @return this scheduler
+   */
+  public PriorityScheduler meter(MetricRegistry registry) {
+    Metadata depth = Metadata.builder()
+        .withName("schedulerQueueDepth")
+        .withDescription("How many notifications are waiting for dispatch")
+        .withType(MetricType.GAUGE)
+        .build();
+    for (Priority priority : PRIORITIES) {
+      int i = priority.ordinal();
+      Tag tag = new Tag("priority", priority.name().toLowerCase());
+      registry.register(depth, (Gauge<Integer>) depths[i]::get, tag);
+      latencies[i] = registry.timer("schedulerQueueLatency", tag);
+    }
+    return this;
+  }
+
+  /**
+   * Submits the given notification for dispatch.
+   *
+   * @param notification the notification to dispatch
+   * @return the stage of the dispatch, which fails if the scheduler is stopped before
+   * dispatching the notification.
+   */
+  public CompletionStage<Void> submit(Notification notification) {
+    if (workers.isEmpty()) {
+      return dispatch(notification);
+    }
+    if (stopped) {
+      return CompletableFuture.failedFuture(new UnbelievableException("The scheduler is stopped"));
+    }
+    int i = notification.priority().ordinal();
+    Entry entry = new Entry(notification, System.nanoTime());
+    queues[i].offer(entry);
+    // counted only after it is queued, so a positive depth always means something to poll
+    depths[i].incrementAndGet();
+    pending.release();
+    // the scheduler might have been stopped while the notification was queued
+    if (stopped) drain();
+    return entry.result;
+  }
+
+  /**
+   * Returns how many notifications of the given priority are waiting for dispatch.
+   *
+   * @param priority the priority of the notifications
+   * @return the number of waiting notifications.
+   */
+  public int depth(Priority priority) {
+    return depths[priority.ordinal()].get();
+  }
+
+  private void work() {
+    while (!stopped) {
+      try {
+        pending.acquire();
+      } catch (InterruptedException e) {
+        return;
+      }
+      Entry entry = next();
+      // taken by the drain of a stopped scheduler
+      if (entry == null) continue;
+      Timer latency = latencies[entry.notification.priority().ordinal()];
+      if (latency != null) {
+        latency.update(System.nanoTime() - entry.submitted, TimeUnit.NANOSECONDS);
+      }
+      dispatch(entry.notification).whenComplete((result, failure) -> {
+        if (failure == null) {
+          entry.result.complete(null);
+        } else {
+          entry.result.completeExceptionally(failure);
+        }
+      });
+    }
+  }
+
+  private CompletionStage<Void> dispatch(Notification notification) {
+    try {
+      return dispatcher.apply(notification);
+    } catch (Exception e) {
+      logger.error("Error while dispatching notification", e);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // smooth weighted round robin among the queues with notifications waiting
+  private synchronized Entry next() {
+    int selected = -1;
+    int total = 0;
+    for (int i = 0; i < queues.length; i++) {
+      if (depths[i].get() == 0) continue;
+      credits[i] += weights[i];
+      total += weights[i];
+      if (selected < 0 || credits[i] > credits[selected]) selected = i;
+    }
+    credits[selected] -= total;
+    depths[selected].decrementAndGet();
+    return queues[selected].poll();
+  }
+
+  /**
+   * Stops the worker threads. Notifications still waiting are not dispatched and their
+   * stages fail.
+   */
+  public void stop() {
+    stopped = true;
+    workers.forEach(Thread::interrupt);
+    drain();
+  }
+
+  private void drain() {
+    int dropped = 0;
+    for (Queue<Entry> queue : queues) {
+      for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+        entry.result.completeExceptionally(new UnbelievableException("The scheduler is stopped"));
+        dropped++;
+      }
+    }
+    if (dropped > 0) {
+      logger.warnv("{0} notifications were not dispatched before stopping", dropped);
+    }
+  }
+
+  private static class Entry {
+
+    private final Notification notification;
+    private final long submitted;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private Entry(Notification notification, long submitted) {
+      this.notification = notification;
+      this.submitted = submitted;
+    }
+
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.DeliveryException;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.RetrySettings;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import io.netty.util.Timer;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.jboss.logging.Logger;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Fires again the notifications a channel failed to deliver.
+ * <p>
+ * Retries are scheduled in a timer wheel instead of holding a thread while waiting, so the
+ * threads of the channel keep firing other notifications. Notifications that fail every
+ * attempt, or fail in a way that trying again won't help, are passed to the dead letters.
+ * <p>
+ * Handling a failure gives back a stage that completes once the notification is delivered
+ * by a later attempt or handled by the dead letters.
+ */
+public class Retrier {
+
+  private static final Logger logger = Logger.getLogger(Retrier.class);
+
+  /**
+   * Fires a notification for the given attempt.
+   */
+  public interface Delivery {
+
+    CompletionStage<Void> fire(Notification notification, int attempt);
+
+  }
+
+  private final String channel;
+  private final RetrySettings settings;
+  private final Timer timer;
+  private final Delivery delivery;
+  private final Function<Notification, CompletionStage<Void>> deadLetters;
+  private final Set<CompletableFuture<Void>> waiting;
+
+  private Counter retries;
+  private Counter failures;
+
+  /**
+   * Creates a new retrier.
+   *
+   * @param channel     the channel of the notifications
+   * @param settings    the retry settings of the channel
+   * @param timer       the timer to schedule the retries
+   * @param delivery    how to fire the notifications again
+   * @param deadLetters the consumer of the notifications that could not be delivered
+   */
+  public Retrier(String channel, RetrySettings settings, Timer timer,
+                 Delivery delivery, Function<Notification, CompletionStage<Void>> deadLetters) {
+    this.channel = channel;
+    this.settings = settings;
+    this.timer = timer;
+    this.delivery = delivery;
+    this.deadLetters = deadLetters;
+    this.waiting = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Publishes how many notifications were retried and given up in this channel.
+   *
+   * @param registry the registry for the metrics
+   * @return this retrier
+   */
+  public Retrier meter(MetricRegistry registry) {
+    Tag tag = new Tag("channel", channel);
+    this.retries = registry.counter("deliveryRetries", tag);
+    this.failures = registry.counter("deadLetters", tag);
+    return this;
+  }
+
+  /**
+   * Handles a failed attempt to deliver the given notification.
+   *
+   * @param notification the notification that was not delivered
+   * @param attempt      the failed attempt (the first one is the attempt 1)
+   * @param failure      the reason of the failure
+   * @return the stage of the next attempt or of the dead letters.
+   */
+  public CompletionStage<Void> failed(Notification notification, int attempt, Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+
+    if (DeliveryException.isRetryable(failure) && attempt < settings.maxAttempts()) {
+      int next = attempt + 1;
+      long delay = settings.delayBefore(next, ThreadLocalRandom.current().nextDouble()).toMillis();
+      logger.warnv("Attempt {0} to deliver notification to {1} failed ({2}), trying again in {3}ms",
+          attempt, notification.destination(), failure.getMessage(), delay);
+      if (retries != null) retries.inc();
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      waiting.add(result);
+      timer.newTimeout(timeout -> {
+        // the retries might have been stopped while waiting
+        if (waiting.remove(result)) retry(notification, next, result);
+      }, delay, TimeUnit.MILLISECONDS);
+      return result;
+    }
+    logger.errorv("Giving up on notification to {0} after {1} attempts ({2})",
+        notification.destination(), attempt, failure.getMessage());
+    if (failures != null) failures.inc();
+    return deadLetters.apply(notification);
+  }
+
+  private void retry(Notification notification, int attempt, CompletableFuture<Void> result) {
+    try {
+      delivery.fire(notification, attempt).whenComplete((value, failure) -> {
+        if (failure == null) {
+          result.complete(null);
+        } else {
+          result.completeExceptionally(failure);
+        }
+      });
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Stops waiting for the scheduled retries, failing their stages.
+   */
+  public void stop() {
+    for (CompletableFuture<Void> result : waiting) {
+      if (waiting.remove(result)) {
+        result.completeExceptionally(new UnbelievableException("The retries of " + channel + " are stopped"));
+      }
+    }
+  }
+
+}
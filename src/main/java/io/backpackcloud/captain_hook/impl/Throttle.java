@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.RateSettings;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import io.netty.util.Timer;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Paces the notifications of a channel according to its rates.
+ * <p>
+ * A notification needs a token from the bucket of its target and another one from the
+ * bucket of the channel, if the channel defines those rates. The target token is taken
+ * first, so a notification waiting for its target doesn't spend the budget of the whole
+ * channel. Short waits hold the calling thread, longer ones are scheduled in a timer wheel
+ * and the notification is handed back to the channel when its turn comes, so a busy target
+ * can't hold every thread of the channel.
+ * <p>
+ * The bucket of a target is dropped once it is full again, since a new one would behave
+ * the same, so targets that stop receiving notifications don't pile up.
+ */
+public class Throttle {
+
+  // how often the buckets of the targets are checked
+  private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+  // waits up to this long hold the thread, longer ones give it back to the channel
+  private static final long MAX_PAUSE = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private final TokenBucket channel;
+  private final RateSettings targetRate;
+  private final Map<String, TokenBucket> targets;
+  private final Timer timer;
+  private final LongSupplier clock;
+  private final AtomicLong nextSweep;
+  private final Set<CompletableFuture<Void>> waiting;
+  private org.eclipse.microprofile.metrics.Timer wait;
+
+  public Throttle(ChannelSettings settings, Timer timer) {
+    this(settings, timer, System::nanoTime);
+  }
+
+  public Throttle(ChannelSettings settings, Timer timer, LongSupplier clock) {
+    this.channel = settings.rate()
+        .map(rate -> new TokenBucket(rate.perSecond(), rate.burst(), clock))
+        .orElse(null);
+    this.targetRate = settings.targetRate().orElse(null);
+    this.targets = new ConcurrentHashMap<>();
+    this.timer = timer;
+    this.clock = clock;
+    this.nextSweep = new AtomicLong(clock.getAsLong() + SWEEP_INTERVAL);
+    this.waiting = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Publishes how long the notifications of the given channel wait to be fired.
+   *
+   * @param registry the registry for the metrics
+   * @param name     the name of the channel
+   * @return this throttle
+   */
+  public Throttle meter(MetricRegistry registry, String name) {
+    this.wait = registry.timer("throttleWait", new Tag("channel", name));
+    return this;
+  }
+
+  /**
+   * Runs the given task once the given notification can be fired.
+   *
+   * @param notification the notification to fire
+   * @param task         fires the notification
+   * @param resume       hands a task back to the channel after a long wait
+   * @return the stage of the given task.
+   */
+  public CompletionStage<Void> pace(Notification notification, Supplier<CompletionStage<Void>> task,
+                                    Function<Supplier<CompletionStage<Void>>, CompletionStage<Void>> resume) {
+    long start = clock.getAsLong();
+    Supplier<CompletionStage<Void>> timed = () -> {
+      if (wait != null) {
+        wait.update(clock.getAsLong() - start, TimeUnit.NANOSECONDS);
+      }
+      return task.get();
+    };
+    Supplier<CompletionStage<Void>> paced = channel == null ?
+        timed :
+        () -> after(channel.reserve(), timed, resume);
+    if (targetRate == null) {
+      return paced.get();
+    }
+    long reserved = reserve(notification.target());
+    sweep();
+    return after(reserved, paced, resume);
+  }
+
+  private long reserve(String target) {
+    long[] reserved = new long[1];
+    // reserving inside compute keeps the sweep from dropping a bucket that is being used
+    targets.compute(target, (key, bucket) -> {
+      TokenBucket result = bucket != null ? bucket
+          : new TokenBucket(targetRate.perSecond(), targetRate.burst(), clock);
+      reserved[0] = result.reserve();
+      return result;
+    });
+    return reserved[0];
+  }
+
+  private CompletionStage<Void> after(long delay, Supplier<CompletionStage<Void>> next,
+                                      Function<Supplier<CompletionStage<Void>>, CompletionStage<Void>> resume) {
+    if (delay <= MAX_PAUSE) {
+      TokenBucket.pause(delay);
+      return next.get();
+    }
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    waiting.add(result);
+    timer.newTimeout(timeout -> {
+      // the throttle might have been stopped while waiting
+      if (!waiting.remove(result)) return;
+      try {
+        resume.apply(next).whenComplete((value, failure) -> {
+          if (failure == null) {
+            result.complete(null);
+          } else {
+            result.completeExceptionally(failure);
+          }
+        });
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    }, delay, TimeUnit.NANOSECONDS);
+    return result;
+  }
+
+  private void sweep() {
+    long now = clock.getAsLong();
+    long due = nextSweep.get();
+    if (now - due >= 0 && nextSweep.compareAndSet(due, now + SWEEP_INTERVAL)) {
+      targets.keySet().forEach(target ->
+          targets.computeIfPresent(target, (key, bucket) -> bucket.isFull() ? null : bucket));
+    }
+  }
+
+  /**
+   * Returns how many targets have a bucket.
+   *
+   * @return the number of buckets of the targets.
+   */
+  int targets() {
+    return targets.size();
+  }
+
+  /**
+   * Checks if this throttle has any rate to enforce.
+   *
+   * @return {@code true} if notifications might need to wait.
+   */
+  public boolean isActive() {
+    return channel != null || targetRate != null;
+  }
+
+  /**
+   * Stops waiting for the notifications scheduled to be fired later, failing their stages.
+   */
+  public void stop() {
+    for (CompletableFuture<Void> result : waiting) {
+      if (waiting.remove(result)) {
+        result.completeExceptionally(new UnbelievableException("The throttle is stopped"));
+      }
+    }
+  }
+
+}
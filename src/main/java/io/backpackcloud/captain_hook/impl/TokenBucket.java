@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket that paces callers instead of rejecting them.
+ * <p>
+ * The bucket doesn't count tokens, it keeps the time when the next token will be available.
+ * Taking a token moves that time forward by the interval between tokens and tells the caller
+ * how long to wait for it, so concurrent callers get consecutive slots with a single
+ * compare-and-set and the bucket never needs to be refilled.
+ */
+public class TokenBucket {
+
+  private final long interval;
+  private final long tolerance;
+  private final LongSupplier clock;
+  private final AtomicLong next;
+
+  /**
+   * Creates a new bucket.
+   *
+   * @param rate  how many tokens are added each second
+   * @param burst how many tokens the bucket holds
+   */
+  public TokenBucket(double rate, int burst) {
+    this(rate, burst, System::nanoTime);
+  }
+
+  /**
+   * Creates a new bucket using the given clock.
+   *
+   * @param rate  how many tokens are added each second
+   * @param burst how many tokens the bucket holds
+   * @param clock the source of the current time in nanoseconds
+   */
+  public TokenBucket(double rate, int burst, LongSupplier clock) {
+    this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    this.tolerance = interval * (Math.max(1, burst) - 1);
+    this.clock = clock;
+    this.next = new AtomicLong(clock.getAsLong() - tolerance);
+  }
+
+  /**
+   * Takes a token from this bucket.
+   *
+   * @return how many nanoseconds the caller should wait before using the token.
+   */
+  public long reserve() {
+    while (true) {
+      long now = clock.getAsLong();
+      long current = next.get();
+      long slot = Math.max(current, now - tolerance);
+      if (next.compareAndSet(current, slot + interval)) {
+        return Math.max(0, slot - now);
+      }
+    }
+  }
+
+  /**
+   * Takes a token from this bucket, waiting until it can be used.
+   *
+   * @return how many nanoseconds the caller waited.
+   */
+  public long acquire() {
+    long wait = reserve();
+    pause(wait);
+    return wait;
+  }
+
+  /**
+   * Checks if this bucket holds all its tokens, which makes it no different from a new one.
+   *
+   * @return {@code true} if a whole burst can be taken without waiting.
+   */
+  public boolean isFull() {
+    return next.get() <= clock.getAsLong() - tolerance;
+  }
+
+  /**
+   * Holds the caller for the given time.
+   *
+   * @param wait how many nanoseconds to wait
+   */
+  static void pause(long wait) {
+    if (wait > 0) {
+      long deadline = System.nanoTime() + wait;
+      for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+        LockSupport.parkNanos(remaining);
+      }
+    }
+  }
+
+}
@@ -25,44 +25,99 @@
 package io.backpackcloud.captain_hook.impl;
 
 import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.Serializer;
 import io.backpackcloud.captain_hook.TemplateEngine;
 import kong.unirest.HttpResponse;
 import kong.unirest.Unirest;
+import kong.unirest.UnirestInstance;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.jboss.logging.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class UnirestCannon implements Cannon {
 
+  private static final Logger logger = Logger.getLogger(UnirestCannon.class);
+
+  private final UnirestInstance unirest;
   private final Serializer serializer;
   private final TemplateEngine templateEngine;
+  private final PayloadWriter payloadWriter;
 
-  public UnirestCannon(Serializer serializer, TemplateEngine templateEngine) {
+  public UnirestCannon(UnirestInstance unirest, Serializer serializer, TemplateEngine templateEngine) {
+    this.unirest = unirest;
     this.serializer = serializer;
     this.templateEngine = templateEngine;
+    this.payloadWriter = new PayloadWriter(templateEngine, serializer.json());
+  }
+
+  public UnirestCannon(Serializer serializer, TemplateEngine templateEngine) {
+    this(Unirest.primaryInstance(), serializer, templateEngine);
+  }
+
+  @Override
+  public Cannon withConnection(String name, ConnectionSettings settings) {
+    // unirest only caps the lifetime of the connections, the client needs to evict the idle ones
+    CloseableHttpClient client = HttpClients.custom()
+        .setMaxConnTotal(settings.maxConnections())
+        .setMaxConnPerRoute(settings.maxConnections())
+        .evictIdleConnections(settings.idleTimeout(), TimeUnit.SECONDS)
+        .evictExpiredConnections()
+        .build();
+    UnirestInstance instance = Unirest.spawnInstance();
+    instance.config().httpClient(client);
+    if (!settings.keepAlive()) {
+      instance.config().addDefaultHeader("Connection", "close");
+    }
+    if (settings.http2()) {
+      logger.warnv("HTTP/2 is not supported by the unirest cannon, {0} will use HTTP/1.1", name);
+    }
+    return new UnirestCannon(instance, serializer, templateEngine);
   }
 
   @Override
   public LoadedCannon load(Notification notification) {
+    return load(Collections.singletonList(notification), false);
+  }
+
+  @Override
+  public LoadedCannon load(List<Notification> notifications) {
+    return load(notifications, true);
+  }
+
+  private LoadedCannon load(List<Notification> notifications, boolean batch) {
+    Notification notification = notifications.get(0);
     return new LoadedCannon() {
-      Map<String, String> headers = new HashMap<>();
+      Map<String, Object> headers = new HashMap<>();
 
       @Override
-      public LoadedCannon add(Map<String, String> additionalHeaders) {
+      public LoadedCannon add(Map<String, ?> additionalHeaders) {
         this.headers.putAll(additionalHeaders);
         return this;
       }
 
       @Override
       public ReadyCannon aimAt(String url) {
+        return aimAt(templateEngine.compile(url));
+      }
+
+      @Override
+      public ReadyCannon aimAt(TemplateEngine.CompiledTemplate url) {
         return payload -> {
-          Map<String, ?> context = notification.context();
-          HttpResponse httpResponse = Unirest.post(templateEngine.evaluate(url, context))
+          Map<String, ?> context = needsContext(url, headers, payload) ?
+              notification.context() : Collections.emptyMap();
+          byte[] body = batch ? payloadWriter.render(payload, notifications) : payloadWriter.render(payload, context);
+          HttpResponse httpResponse = unirest.post(url.evaluate(context))
                                              .headers(templateEngine.evaluate(headers, context))
                                              .header("Content-Type", "application/json")
-                                             .body(serializer.json().serialize(templateEngine.evaluate(payload, context)))
+                                             .body(body)
                                              .asEmpty();
 
           return new Cannon.Response() {
@@ -81,5 +136,8 @@ public class UnirestCannon implements Cannon {
     };
   }
 
+  private boolean needsContext(TemplateEngine.CompiledTemplate url, Map<String, ?> headers, Map<String, ?> payload) {
+    return !(url.isLiteral() && templateEngine.isLiteral(headers) && templateEngine.isLiteral(payload));
+  }
 
 }
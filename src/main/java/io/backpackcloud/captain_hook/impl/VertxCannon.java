@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A cannon backed by the Vert.x web client.
+ * <p>
+ * Payloads are fired without blocking the caller, so many of them can be in flight at the
+ * same time using only the event loop threads. Waiting for the response with
+ * {@link ReadyCannon#fire(Map)} should never happen in an event loop thread.
+ */
+public class VertxCannon implements Cannon {
+
+  private final Vertx vertx;
+  private final WebClientOptions options;
+  private final WebClient client;
+  private final Serializer serializer;
+  private final TemplateEngine templateEngine;
+  private final PayloadWriter payloadWriter;
+
+  public VertxCannon(Vertx vertx, WebClientOptions options, Serializer serializer, TemplateEngine templateEngine) {
+    this.vertx = vertx;
+    this.options = options;
+    this.client = WebClient.create(vertx, options);
+    this.serializer = serializer;
+    this.templateEngine = templateEngine;
+    this.payloadWriter = new PayloadWriter(templateEngine, serializer.json());
+  }
+
+  public VertxCannon(Vertx vertx, Serializer serializer, TemplateEngine templateEngine) {
+    this(vertx, new WebClientOptions(), serializer, templateEngine);
+  }
+
+  @Override
+  public Cannon withConnection(String name, ConnectionSettings settings) {
+    WebClientOptions poolOptions = new WebClientOptions(options)
+        .setMaxPoolSize(settings.maxConnections())
+        .setKeepAlive(settings.keepAlive())
+        .setIdleTimeout(settings.idleTimeout());
+    if (settings.http2()) {
+      // HTTP/2 is negotiated through ALPN for https and upgraded for plain http
+      poolOptions.setProtocolVersion(HttpVersion.HTTP_2)
+          .setUseAlpn(true)
+          .setHttp2MaxPoolSize(settings.maxConnections());
+    }
+    return new VertxCannon(vertx, poolOptions, serializer, templateEngine);
+  }
+
+  @Override
+  public LoadedCannon load(Notification notification) {
+    return load(Collections.singletonList(notification), false);
+  }
+
+  @Override
+  public LoadedCannon load(List<Notification> notifications) {
+    return load(notifications, true);
+  }
+
+  private LoadedCannon load(List<Notification> notifications, boolean batch) {
+    Notification notification = notifications.get(0);
+    return new LoadedCannon() {
+      Map<String, Object> headers = new HashMap<>();
+
+      @Override
+      public LoadedCannon add(Map<String, ?> additionalHeaders) {
+        this.headers.putAll(additionalHeaders);
+        return this;
+      }
+
+      @Override
+      public ReadyCannon aimAt(String url) {
+        return aimAt(templateEngine.compile(url));
+      }
+
+      @Override
+      public ReadyCannon aimAt(TemplateEngine.CompiledTemplate url) {
+        return new ReadyCannon() {
+          @Override
+          public Response fire(Map<String, ?> payload) {
+            return fireAsync(payload).toCompletableFuture().join();
+          }
+
+          @Override
+          public CompletionStage<Response> fireAsync(Map<String, ?> payload) {
+            CompletableFuture<Response> result = new CompletableFuture<>();
+            try {
+              Map<String, ?> context = needsContext(url, headers, payload) ?
+                  notification.context() : Collections.emptyMap();
+              HttpRequest<Buffer> request = client.postAbs(url.evaluate(context));
+
+              Map<String, ?> evaluatedHeaders = templateEngine.evaluate(headers, context);
+              evaluatedHeaders.forEach((name, value) -> request.putHeader(name, String.valueOf(value)));
+              request.putHeader("Content-Type", "application/json");
+
+              // the payload is rendered straight into the buffer that goes to the wire
+              Buffer body = Buffer.buffer(1024);
+              OutputStream out = new BufferOutputStream(body);
+              if (batch) {
+                payloadWriter.write(payload, notifications, out);
+              } else {
+                payloadWriter.write(payload, context, out);
+              }
+              request.sendBuffer(body, reply -> {
+                if (reply.succeeded()) {
+                  result.complete(new VertxResponse(reply.result()));
+                } else {
+                  result.completeExceptionally(reply.cause());
+                }
+              });
+            } catch (RuntimeException e) {
+              result.completeExceptionally(e);
+            }
+            return result;
+          }
+        };
+      }
+    };
+  }
+
+  private boolean needsContext(TemplateEngine.CompiledTemplate url, Map<String, ?> headers, Map<String, ?> payload) {
+    return !(url.isLiteral() && templateEngine.isLiteral(headers) && templateEngine.isLiteral(payload));
+  }
+
+  private static class BufferOutputStream extends OutputStream {
+
+    private final Buffer buffer;
+
+    private BufferOutputStream(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      buffer.appendBytes(bytes, offset, length);
+    }
+
+  }
+
+  private static class VertxResponse implements Cannon.Response {
+
+    private final HttpResponse<Buffer> response;
+
+    private VertxResponse(HttpResponse<Buffer> response) {
+      this.response = response;
+    }
+
+    @Override
+    public int status() {
+      return response.statusCode();
+    }
+
+    @Override
+    public String message() {
+      return response.statusMessage();
+    }
+
+  }
+
+}
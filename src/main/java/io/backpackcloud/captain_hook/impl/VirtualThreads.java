@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Gives access to virtual threads when the running JVM supports them.
+ * <p>
+ * The build still targets a JVM without virtual threads, so they are looked up through
+ * reflection.
+ */
+public final class VirtualThreads {
+
+  private static final Logger logger = Logger.getLogger(VirtualThreads.class);
+
+  private VirtualThreads() {
+
+  }
+
+  /**
+   * Creates a factory of virtual threads named with the given prefix followed by a counter.
+   *
+   * @param prefix the prefix of the thread names
+   * @return the factory or an empty optional if the running JVM doesn't support virtual threads.
+   */
+  public static Optional<ThreadFactory> factory(String prefix) {
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method name = builderType.getMethod("name", String.class, long.class);
+      Method factory = builderType.getMethod("factory");
+      return Optional.of((ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L)));
+    } catch (ReflectiveOperationException e) {
+      logger.debugv("Virtual threads are not supported: {0}", e.toString());
+      return Optional.empty();
+    }
+  }
+
+}
@@ -27,50 +27,85 @@ package io.backpackcloud.captain_hook.transmitters.http;
 import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.BatchSettings;
 import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
+import io.backpackcloud.captain_hook.DeliveryException;
 import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.TemplateEngine;
 import io.backpackcloud.captain_hook.Transmitter;
 import io.backpackcloud.captain_hook.UnbelievableException;
+import io.backpackcloud.captain_hook.impl.BatchScheduler;
+import io.backpackcloud.captain_hook.impl.BatchingCannon;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import org.jboss.logging.Logger;
 
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 @RegisterForReflection
 public class HTTPTransmitter implements Transmitter {
 
   private static final Logger logger = Logger.getLogger(HTTPTransmitter.class);
 
-  private final String url;
-  private final Map<String, String> headers;
+  private final TemplateEngine.CompiledTemplate url;
+  private final Map<String, ?> headers;
   private final Map<String, ?> payload;
   private final Cannon cannon;
 
-  private boolean error;
+  private volatile boolean error;
 
   @JsonCreator
   public HTTPTransmitter(@JsonProperty("url") String url,
                          @JsonProperty("headers") Map<String, String> headers,
                          @JsonProperty("payload") Map<String, ?> payload,
-                         @JacksonInject("cannon") Cannon cannon) {
-    this.url = url;
-    this.headers = Optional.ofNullable(headers)
-        .orElseGet(Collections::emptyMap);
-    this.payload = Optional.ofNullable(payload)
-        .orElseThrow(UnbelievableException.because("Payload definition is required"));
-    this.cannon = cannon;
+                         @JsonProperty("connection") ConnectionSettings connection,
+                         @JsonProperty("batch") BatchSettings batch,
+                         @JacksonInject("cannon") Cannon cannon,
+                         @JacksonInject("templateEngine") TemplateEngine templateEngine,
+                         @JacksonInject("batchScheduler") BatchScheduler batchScheduler) {
+    this.url = templateEngine.compile(url);
+    this.headers = templateEngine.compile(Optional.ofNullable(headers)
+        .orElseGet(Collections::emptyMap));
+    this.payload = templateEngine.compile(Optional.ofNullable(payload)
+        .orElseThrow(UnbelievableException.because("Payload definition is required")));
+    Cannon pooled = Optional.ofNullable(connection)
+        .map(settings -> cannon.withConnection(settings.nameFor(url), settings))
+        .orElse(cannon);
+    int connections = Optional.ofNullable(connection)
+        .map(ConnectionSettings::maxConnections)
+        .orElse(ConnectionSettings.DEFAULT_MAX_CONNECTIONS);
+    this.cannon = Optional.ofNullable(batch)
+        .<Cannon>map(settings -> new BatchingCannon(pooled, settings, templateEngine, batchScheduler, connections))
+        .orElse(pooled);
   }
 
   @Override
   public void fire(Notification notification) {
+    deliver(notification);
+  }
+
+  @Override
+  public CompletionStage<Void> deliver(Notification notification) {
     logger.infov("Sending notification to {0}", notification.target());
-    cannon.load(notification)
+    return cannon.load(notification)
         .add(headers)
         .aimAt(url)
-        .fire(payload)
-        .then(response -> error = response.status() % 500 < 100);
+        .fireAsync(payload)
+        .handle((response, failure) -> {
+          if (failure != null) {
+            logger.error("Error while sending notification", failure);
+            error = true;
+            throw new DeliveryException(failure);
+          }
+          error = response.status() % 500 < 100;
+          if (response.status() >= 400) {
+            throw DeliveryException.forStatus(response.status());
+          }
+          return null;
+        });
   }
 
   @Override
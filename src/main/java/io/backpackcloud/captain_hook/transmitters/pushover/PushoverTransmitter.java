@@ -27,6 +27,7 @@ package io.backpackcloud.captain_hook.transmitters.pushover;
 import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.DeliveryException;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.SensitiveValue;
 import io.backpackcloud.captain_hook.Transmitter;
@@ -63,6 +64,7 @@ public class PushoverTransmitter implements Transmitter {
       pushoverService.send(pushoverNotification);
     } catch (WebApplicationException e) {
       logger.errorv(e, "Got HTTP Status {0} while sending pushover notification", e.getResponse().getStatus());
+      throw DeliveryException.forStatus(e.getResponse().getStatus());
     }
   }
 
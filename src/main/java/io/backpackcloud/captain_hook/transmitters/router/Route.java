@@ -24,9 +24,16 @@
 
 package io.backpackcloud.captain_hook.transmitters.router;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.BatchSettings;
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.ConnectionSettings;
+import io.backpackcloud.captain_hook.TemplateEngine;
 import io.backpackcloud.captain_hook.UnbelievableException;
+import io.backpackcloud.captain_hook.impl.BatchScheduler;
+import io.backpackcloud.captain_hook.impl.BatchingCannon;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 import java.util.Collections;
@@ -36,32 +43,72 @@ import java.util.Optional;
 @RegisterForReflection
 public class Route {
 
-  private final String url;
+  private final TemplateEngine.CompiledTemplate url;
   private final Map<String, ?> payload;
-  private final Map<String, String> headers;
+  private final Map<String, ?> headers;
+  private final Cannon cannon;
 
   @JsonCreator
   public Route(@JsonProperty("url") String url,
                @JsonProperty("payload") Map<String, ?> payload,
-               @JsonProperty("headers") Map<String, String> headers) {
-    this.url = Optional.ofNullable(url)
-        .orElseThrow(UnbelievableException.because("Cannot create a route without a url"));
-    this.payload = Optional.ofNullable(payload)
-        .orElseThrow(UnbelievableException.because("Cannot create a route without a payload"));
-    this.headers = Optional.ofNullable(headers)
-        .orElseGet(Collections::emptyMap);
+               @JsonProperty("headers") Map<String, String> headers,
+               @JsonProperty("connection") ConnectionSettings connection,
+               @JsonProperty("batch") BatchSettings batch,
+               @JacksonInject("cannon") Cannon cannon,
+               @JacksonInject("templateEngine") TemplateEngine templateEngine,
+               @JacksonInject("batchScheduler") BatchScheduler batchScheduler) {
+    this.url = templateEngine.compile(Optional.ofNullable(url)
+        .orElseThrow(UnbelievableException.because("Cannot create a route without a url")));
+    this.payload = templateEngine.compile(Optional.ofNullable(payload)
+        .orElseThrow(UnbelievableException.because("Cannot create a route without a payload")));
+    this.headers = templateEngine.compile(Optional.ofNullable(headers)
+        .orElseGet(Collections::emptyMap));
+    Cannon pooled = Optional.ofNullable(connection)
+        .map(settings -> cannon.withConnection(settings.nameFor(url), settings))
+        .orElse(cannon);
+    int connections = Optional.ofNullable(connection)
+        .map(ConnectionSettings::maxConnections)
+        .orElse(ConnectionSettings.DEFAULT_MAX_CONNECTIONS);
+    this.cannon = Optional.ofNullable(batch)
+        .<Cannon>map(settings -> new BatchingCannon(pooled, settings, templateEngine, batchScheduler, connections))
+        .orElse(pooled);
   }
 
-  public String url() {
+  /**
+   * Returns the compiled template of the url.
+   *
+   * @return the compiled template of the url.
+   */
+  public TemplateEngine.CompiledTemplate url() {
     return url;
   }
 
+  /**
+   * Returns the payload with its templates compiled.
+   *
+   * @return the payload with its templates compiled.
+   */
   public Map<String, ?> payload() {
     return payload;
   }
 
-  public Map<String, String> headers() {
+  /**
+   * Returns the headers with their templates compiled.
+   *
+   * @return the headers with their templates compiled.
+   */
+  public Map<String, ?> headers() {
     return headers;
   }
 
+  /**
+   * Returns the cannon to fire at this route, which uses the connection pool of this route
+   * if one was defined.
+   *
+   * @return the cannon to fire at this route.
+   */
+  public Cannon cannon() {
+    return cannon;
+  }
+
 }
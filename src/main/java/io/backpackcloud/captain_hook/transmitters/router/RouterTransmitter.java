@@ -24,16 +24,17 @@
 
 package io.backpackcloud.captain_hook.transmitters.router;
 
-import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.DeliveryException;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.Transmitter;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import org.jboss.logging.Logger;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @RegisterForReflection
 public class RouterTransmitter implements Transmitter {
@@ -41,27 +42,40 @@ public class RouterTransmitter implements Transmitter {
   private static final Logger logger = Logger.getLogger(RouterTransmitter.class);
 
   private final Map<String, Route> routes;
-  private final Cannon cannon;
 
   @JsonCreator
-  public RouterTransmitter(@JsonProperty("routes") Map<String, Route> routes,
-                           @JacksonInject("cannon") Cannon cannon) {
+  public RouterTransmitter(@JsonProperty("routes") Map<String, Route> routes) {
     this.routes = routes;
-    this.cannon = cannon;
   }
 
   @Override
   public void fire(Notification notification) {
+    deliver(notification);
+  }
+
+  @Override
+  public CompletionStage<Void> deliver(Notification notification) {
     if (routes.containsKey(notification.target())) {
       Route route = routes.get(notification.target());
 
       logger.infov("Sending notification to: {0}", notification.target());
-      cannon.load(notification)
+      return route.cannon().load(notification)
           .add(route.headers())
           .aimAt(route.url())
-          .fire(route.payload());
+          .fireAsync(route.payload())
+          .handle((response, failure) -> {
+            if (failure != null) {
+              logger.error("Error while sending notification", failure);
+              throw new DeliveryException(failure);
+            }
+            if (response.status() >= 400) {
+              throw DeliveryException.forStatus(response.status());
+            }
+            return null;
+          });
     } else {
       logger.warnv("No route defined for {0}", notification.target());
+      return CompletableFuture.completedFuture(null);
     }
   }
 
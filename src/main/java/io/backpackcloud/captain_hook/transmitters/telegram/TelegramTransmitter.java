@@ -27,6 +27,7 @@ package io.backpackcloud.captain_hook.transmitters.telegram;
 import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.DeliveryException;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.SensitiveValue;
 import io.backpackcloud.captain_hook.TemplateEngine;
@@ -41,8 +42,7 @@ public class TelegramTransmitter implements Transmitter {
   private static final Logger logger = Logger.getLogger(TelegramTransmitter.class);
 
   private final String token;
-  private final String template;
-  private final TemplateEngine templateEngine;
+  private final TemplateEngine.CompiledTemplate template;
   private final TelegramService telegramService;
 
   @JsonCreator
@@ -51,8 +51,7 @@ public class TelegramTransmitter implements Transmitter {
                              @JacksonInject("templateEngine") TemplateEngine templateEngine,
                              @JacksonInject("telegramService") TelegramService telegramService) {
     this.token = token.value();
-    this.template = Optional.ofNullable(template).orElse("telegram/notification.ftl");
-    this.templateEngine = templateEngine;
+    this.template = templateEngine.compile(Optional.ofNullable(template).orElse("telegram/notification.ftl"));
     this.telegramService = telegramService;
   }
 
@@ -61,12 +60,13 @@ public class TelegramTransmitter implements Transmitter {
     logger.infov("Sending message to {0}", notification.target());
     TelegramMessage message = new TelegramMessage(
         notification.target(),
-        templateEngine.evaluate(template, notification.context())
+        template.evaluate(notification.context())
     );
     try {
       telegramService.send(token, message);
     } catch (WebApplicationException e) {
-      logger.errorv(e, "Got HTTP Status {0} while sending pushover notification", e.getResponse().getStatus());
+      logger.errorv(e, "Got HTTP Status {0} while sending telegram notification", e.getResponse().getStatus());
+      throw DeliveryException.forStatus(e.getResponse().getStatus());
     }
   }
 
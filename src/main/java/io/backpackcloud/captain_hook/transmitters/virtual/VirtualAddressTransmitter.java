@@ -27,28 +27,87 @@ package io.backpackcloud.captain_hook.transmitters.virtual;
 import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.backpackcloud.captain_hook.Address;
 import io.backpackcloud.captain_hook.Notification;
 import io.backpackcloud.captain_hook.Plank;
 import io.backpackcloud.captain_hook.Transmitter;
+import io.backpackcloud.captain_hook.UnbelievableException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Forwards notifications to the addresses behind their virtual addresses.
+ * <p>
+ * Virtual addresses pointing to other virtual addresses are resolved once, when the
+ * transmitters are loaded, into the set of actual addresses at the end of their chains,
+ * so forwarding a notification is a single lookup.
+ */
 public class VirtualAddressTransmitter implements Transmitter {
 
   private final Map<String, VirtualAddress> virtualAddresses;
   private final Plank plank;
+  private Map<String, List<Address>> resolved;
 
   @JsonCreator
   public VirtualAddressTransmitter(@JsonProperty("addresses") Map<String, VirtualAddress> virtualAddresses,
                                    @JacksonInject("plank") Plank plank) {
     this.virtualAddresses = virtualAddresses;
     this.plank = plank;
+    this.resolved = virtualAddresses.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().addresses()));
+  }
+
+  /**
+   * Resolves every virtual address of this transmitter into the actual addresses at the end
+   * of its chain.
+   *
+   * @param channel      the channel of this transmitter
+   * @param transmitters every transmitter, by their channels
+   * @throws UnbelievableException if a virtual address points back to itself
+   */
+  public void flatten(String channel, Map<String, Transmitter> transmitters) {
+    Map<String, List<Address>> result = new HashMap<>();
+    virtualAddresses.keySet().forEach(id -> result.put(id,
+        new ArrayList<>(expand(new Address(channel, id), transmitters, new LinkedHashSet<>()))));
+    this.resolved = result;
+  }
+
+  private static Set<Address> expand(Address address, Map<String, Transmitter> transmitters, Set<Address> path) {
+    Transmitter transmitter = transmitters.get(address.channel());
+    if (!(transmitter instanceof VirtualAddressTransmitter)) {
+      return Collections.singleton(address);
+    }
+    if (!path.add(address)) {
+      throw new UnbelievableException("Virtual address " + address + " points back to itself: " +
+          path.stream().map(Address::toString).collect(Collectors.joining(" -> ")) + " -> " + address);
+    }
+
+    Set<Address> result = new LinkedHashSet<>();
+    ((VirtualAddressTransmitter) transmitter).virtualAddresses
+        .getOrDefault(address.id(), VirtualAddress.NULL)
+        .addresses()
+        .forEach(member -> result.addAll(expand(member, transmitters, path)));
+
+    path.remove(address);
+    return result;
+  }
+
+  @Override
+  public Optional<List<Address>> forward(Notification notification) {
+    return Optional.of(resolved.getOrDefault(notification.target(), Collections.emptyList()));
   }
 
   @Override
   public void fire(Notification notification) {
-    VirtualAddress virtualAddress = virtualAddresses.getOrDefault(notification.target(), VirtualAddress.NULL);
-    virtualAddress.addresses().stream()
+    forward(notification).get().stream()
         .map(notification::changeAddress)
         .forEach(plank::walk);
   }
@@ -24,10 +24,14 @@
 
 package io.backpackcloud.captain_hook;
 
+import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddress;
+import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddressTransmitter;
 import io.backpackcloud.spectaculous.Spec;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,4 +62,76 @@ public class CaptainHookTest {
         .expect(Exception.class).when(captainHook -> captainHook.subscriptions().clear());
   }
 
+  @Test
+  public void testVirtualAddresses() {
+    Map<String, VirtualAddress> groups = new HashMap<>();
+    groups.put("team", new VirtualAddress(Arrays.asList(
+        Address.fromString("groups:oncall"), Address.fromString("pushover:lead"))));
+    groups.put("oncall", new VirtualAddress(Arrays.asList(
+        Address.fromString("pushover:someone"), Address.fromString("people:lead"))));
+
+    Map<String, Transmitter> transmitters = new HashMap<>();
+    transmitters.put("pushover", notification -> {});
+    transmitters.put("people", new VirtualAddressTransmitter(
+        Collections.singletonMap("lead", new VirtualAddress(Address.fromString("pushover:lead"))), notification -> {}));
+    transmitters.put("groups", new VirtualAddressTransmitter(groups, notification -> {}));
+
+    Notification notification = new Notification(null, "message", null,
+        Address.fromString("groups:team"), Priority.NORMAL, LabelSet.empty());
+
+    Spec.describe(VirtualAddressTransmitter.class)
+
+        .because("Virtual addresses should be resolved into their actual addresses")
+        .given((VirtualAddressTransmitter) new CaptainHook(new ArrayList<>(), new ArrayList<>(), transmitters)
+            .transmitters().get("groups"))
+        .expect(Arrays.asList(Address.fromString("pushover:someone"), Address.fromString("pushover:lead")))
+        .from(transmitter -> transmitter.forward(notification).get())
+        .expect(Collections.emptyList())
+        .from(transmitter -> transmitter.forward(notification.changeAddress(Address.fromString("groups:nobody"))).get());
+
+    groups.put("lead", new VirtualAddress(Address.fromString("groups:team")));
+    groups.put("oncall", new VirtualAddress(Address.fromString("groups:lead")));
+    transmitters.put("groups", new VirtualAddressTransmitter(groups, notification -> {}));
+
+    Spec.describe(CaptainHook.class)
+
+        .because("Cycles between virtual addresses should not be accepted")
+        .given(transmitters)
+        .expect(UnbelievableException.class).when(map -> new CaptainHook(new ArrayList<>(), new ArrayList<>(), map));
+  }
+
+  @Test
+  public void testDeadLetters() {
+    Map<String, Transmitter> transmitters = new HashMap<>();
+    transmitters.put("pushover", notification -> {});
+    transmitters.put("telegram", notification -> {});
+    transmitters.put("ops", new VirtualAddressTransmitter(
+        Collections.singletonMap("team", new VirtualAddress(Address.fromString("pushover:lead"))), notification -> {}));
+
+    Map<String, ChannelSettings> channels = new HashMap<>();
+    channels.put("pushover", channel(Address.fromString("telegram:lead")));
+
+    Spec.describe(CaptainHook.class)
+
+        .because("Dead letters going to another channel should be accepted")
+        .given(channels)
+        .expect(transmitters).from(map -> new CaptainHook(new ArrayList<>(), new ArrayList<>(), transmitters, map)
+            .transmitters())
+
+        .because("Dead letters coming back to their channel should not be accepted")
+        .expect(UnbelievableException.class).when(map -> {
+          map.put("telegram", channel(Address.fromString("pushover:lead")));
+          new CaptainHook(new ArrayList<>(), new ArrayList<>(), transmitters, map);
+        })
+        .expect(UnbelievableException.class).when(map -> {
+          map.put("telegram", channel(Address.fromString("ops:team")));
+          new CaptainHook(new ArrayList<>(), new ArrayList<>(), transmitters, map);
+        });
+  }
+
+  private ChannelSettings channel(Address deadLetter) {
+    return new ChannelSettings(null, null, null, null, null,
+        new RetrySettings(null, null, null, null, null, deadLetter), null, null);
+  }
+
 }
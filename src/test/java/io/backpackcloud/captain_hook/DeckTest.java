@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.backpackcloud.captain_hook;
+
+import io.backpackcloud.captain_hook.impl.Journal;
+import io.backpackcloud.captain_hook.impl.JournalPlank;
+import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddress;
+import io.backpackcloud.captain_hook.transmitters.virtual.VirtualAddressTransmitter;
+import io.backpackcloud.spectaculous.Spec;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+
+public class DeckTest {
+
+  List<Address> received = new CopyOnWriteArrayList<>();
+  CountDownLatch release = new CountDownLatch(1);
+
+  @Test
+  public void testFullChannelInVirtualAddress() throws IOException {
+    Map<String, Transmitter> transmitters = new HashMap<>();
+    transmitters.put("fast", notification -> received.add(notification.destination()));
+    // holds its only thread until the end of the test
+    transmitters.put("slow", notification -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    transmitters.put("team", new VirtualAddressTransmitter(Collections.singletonMap("all", new VirtualAddress(Arrays.asList(
+        Address.fromString("fast:a"), Address.fromString("slow:b"), Address.fromString("fast:c")))), notification -> {}));
+    Map<String, ChannelSettings> channels = Collections.singletonMap("slow", new ChannelSettings(1, 1, null));
+
+    Deck deck = new Deck(new CaptainHook(new ArrayList<>(), new ArrayList<>(), transmitters, channels),
+        mock(MetricRegistry.class, Answers.RETURNS_MOCKS), 1, 8, 4, 1, false, 10000);
+    JournalPlank plank = new JournalPlank(new Journal(Files.createTempDirectory("outbox"), 1024), deck::deliver, 10);
+
+    // one notification is being fired by the slow channel and the other one fills its queue
+    plank.walk(notification("slow:x"));
+    plank.walk(notification("slow:y"));
+    plank.walk(notification("team:all"));
+
+    Spec.describe(Deck.class)
+
+        .given(deck)
+        .because("The other addresses should get the notification once, even if a channel is full")
+        .expect(Arrays.asList(Address.fromString("fast:a"), Address.fromString("fast:c"))).from(d -> {
+          // enough for the outbox to try a failed notification a few times
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1500));
+          List<Address> result = new ArrayList<>(received);
+          result.sort(Comparator.comparing(Address::toString));
+          return result;
+        });
+
+    release.countDown();
+    plank.close();
+    deck.stop();
+  }
+
+  private static Notification notification(String address) {
+    return new Notification(null, "message", null, Address.fromString(address), Priority.NORMAL, LabelSet.empty());
+  }
+
+}
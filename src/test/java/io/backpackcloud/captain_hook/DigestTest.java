@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import freemarker.template.Configuration;
+import io.backpackcloud.captain_hook.impl.Digester;
+import io.backpackcloud.captain_hook.impl.FreemarkerTemplateEngine;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DigestTest {
+
+  TemplateEngine templateEngine = new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 10);
+  Address address = Address.fromString("chat:devs");
+
+  Notification notification(String message, Priority priority, String env) {
+    Map<String, String> labels = new HashMap<>();
+    labels.put("env", env);
+    labels.put("source", "ci");
+    return new Notification(null, message, null, address, priority, LabelSet.of(labels));
+  }
+
+  @Test
+  public void testSummary() {
+    List<Notification> notifications = Arrays.asList(
+        notification("build failed", Priority.LOW, "dev"),
+        notification("deploy failed", Priority.HIGH, "prod"));
+
+    Spec.describe(Digest.class)
+
+        .given(new Digest(60, null, null, null, templateEngine))
+        .expect("2 notifications").from(digest -> digest.summarize(address, notifications).title().get())
+        .expect("build failed\ndeploy failed").from(digest -> digest.summarize(address, notifications).message())
+
+        .because("The digest should be as important as its most important notification")
+        .expect(Priority.HIGH).from(digest -> digest.summarize(address, notifications).priority())
+
+        .because("Only labels shared by every notification should be kept")
+        .expect(LabelSet.of(Collections.singletonMap("source", "ci")))
+        .from(digest -> digest.summarize(address, notifications).labels())
+
+        .because("A single notification doesn't need a summary")
+        .expect(notifications.get(0)).from(digest -> digest.summarize(address, notifications.subList(0, 1)));
+  }
+
+  @Test
+  public void testDigester() {
+    List<Notification> delivered = new ArrayList<>();
+    Digest digest = new Digest(60, 2, null, null, templateEngine);
+
+    Spec.describe(Digester.class)
+
+        .given(new Digester(delivered::add))
+        .because("Notifications should be held until the digest is full")
+        .expect(0).from(digester -> {
+          digester.add(digest, notification("one", Priority.NORMAL, "dev"));
+          return delivered.size();
+        })
+        .expect(1).from(digester -> {
+          digester.add(digest, notification("two", Priority.NORMAL, "dev"));
+          return delivered.size();
+        })
+        .expect("one\ntwo").from(digester -> delivered.get(0).message())
+
+        .because("Open digests should be delivered when flushed")
+        .expect(2).from(digester -> {
+          digester.add(digest, notification("three", Priority.NORMAL, "dev"));
+          digester.flush();
+          return delivered.size();
+        });
+  }
+
+}
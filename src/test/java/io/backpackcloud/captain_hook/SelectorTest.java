@@ -30,7 +30,9 @@ import org.junit.jupiter.api.Test;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -102,6 +104,25 @@ public class SelectorTest {
         .expect(false).from(test(labels));
   }
 
+  @Test
+  public void testRequirements() {
+    Spec.describe(Selector.class)
+
+        .given(selector("foo:bar|baz"))
+        .because("Accepted values should be required")
+        .expect(Collections.singletonMap("foo", new HashSet<>(Arrays.asList("bar", "baz"))))
+        .from(Selector::requirements)
+
+        .given(selector("foo:*"))
+        .because("Wildcard should require any value")
+        .expect(Collections.singletonMap("foo", Collections.emptySet()))
+        .from(Selector::requirements)
+
+        .given(selector("foo:!", "bar:!baz"))
+        .because("Labels that can be absent are not required")
+        .expect(Collections.emptyMap()).from(Selector::requirements);
+  }
+
   private Selector selector(String... values) {
     Map map = Arrays.stream(values)
                     .map(v -> {
@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook;
+
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SubscriptionIndexTest {
+
+  Subscription named = subscription("deploy", "env", "prod");
+  Subscription exact = subscription(null, "env", "prod|staging");
+  Subscription present = subscription(null, "env", "*");
+  Subscription negated = subscription(null, "env", "!dev");
+  Subscription other = subscription("build", "env", "prod");
+
+  Event event(String name, String env) {
+    return new Event(LabelSet.of(Collections.singletonMap("env", env)), name, "message", null, null);
+  }
+
+  Subscription subscription(String name, String label, String value) {
+    return new Subscription(Selector.from(Collections.singletonMap(label, value)),
+        name, Address.fromString("void"), Priority.NORMAL);
+  }
+
+  @Test
+  public void test() {
+    Spec.describe(SubscriptionIndex.class)
+
+        .given(new SubscriptionIndex(Arrays.asList(named, exact, present, negated, other)))
+
+        .because("Only subscriptions that might match should be candidates, in their original order")
+        .expect(Arrays.asList(named, exact, present, negated))
+        .from(index -> index.candidates(event("deploy", "prod")))
+
+        .expect(Arrays.asList(exact, present, negated))
+        .from(index -> index.candidates(event("deploy", "staging")))
+
+        .because("Selectors that cannot be indexed should always be candidates")
+        .expect(Arrays.asList(present, negated))
+        .from(index -> index.candidates(event("test", "dev")))
+
+        .expect(Collections.singletonList(negated))
+        .from(index -> index.candidates(new Event(LabelSet.empty(), "test", "message", null, null)));
+  }
+
+}
@@ -28,6 +28,7 @@ import io.backpackcloud.captain_hook.Cannon;
 import io.backpackcloud.captain_hook.CaptainHook;
 import io.backpackcloud.captain_hook.Mapper;
 import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.captain_hook.impl.BatchScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Answers;
@@ -49,6 +50,7 @@ public class ConfigProducerTest {
   Serializer serializer = mock(Serializer.class, Answers.RETURNS_MOCKS);
   Mapper yamlMapper = mock(Mapper.class, Answers.RETURNS_MOCKS);
   Cannon cannon = mock(Cannon.class);
+  BatchScheduler batchScheduler = mock(BatchScheduler.class);
 
   @BeforeEach
   void init() {
@@ -58,7 +60,7 @@ public class ConfigProducerTest {
 
   @Test
   public void test() {
-    assertSame(captainHook, new ConfigProducer(somePath).getConfig(serializer, cannon));
+    assertSame(captainHook, new ConfigProducer(somePath).getConfig(serializer, cannon, batchScheduler));
   }
 
 }
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.cdi;
+
+import io.backpackcloud.captain_hook.Mapper;
+import io.backpackcloud.captain_hook.Serializer;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+public class SerializerProducerTest {
+
+  Map<String, ?> data = Collections.singletonMap("name", "World");
+
+  @Test
+  public void testMappers() {
+    Spec.describe(Serializer.class)
+
+        .given(new SerializerProducer().get(null, null, null, null))
+
+        .because("Mappers should be reused")
+        .expect(true).from(serializer -> serializer.json() == serializer.json())
+        .expect(true).from(serializer -> serializer.yaml() == serializer.yaml())
+        .expect(true).from(serializer -> serializer.xml() == serializer.xml());
+  }
+
+  @Test
+  public void testBytes() {
+    Spec.describe(Mapper.class)
+
+        .given(new SerializerProducer().get(null, null, null, null).json())
+
+        .expect("{\"name\":\"World\"}").from(mapper -> new String(mapper.serializeAsBytes(data), StandardCharsets.UTF_8))
+        .expect(data).from(mapper -> mapper.deserialize(mapper.serializeAsBytes(data)))
+        .expect("{\"name\":\"World\"}").from(mapper -> {
+          ByteArrayOutputStream output = new ByteArrayOutputStream();
+          mapper.serialize(data, output);
+          return output.toString();
+        });
+  }
+
+}
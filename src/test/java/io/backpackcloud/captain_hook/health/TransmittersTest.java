@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.health;
+
+import io.backpackcloud.captain_hook.CaptainHook;
+import io.backpackcloud.captain_hook.Deck;
+import io.backpackcloud.captain_hook.Transmitter;
+import io.backpackcloud.spectaculous.Spec;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransmittersTest {
+
+  Transmitter transmitter = mock(Transmitter.class);
+  CaptainHook captainHook = mock(CaptainHook.class);
+  Deck deck = mock(Deck.class);
+
+  Transmitters transmitters = new Transmitters(captainHook, deck, 30);
+
+  @BeforeEach
+  void init() {
+    when(captainHook.transmitters()).thenReturn(Collections.singletonMap("chat", transmitter));
+    when(deck.isUp("chat")).thenReturn(true);
+    when(transmitter.isUp()).thenReturn(false);
+  }
+
+  @AfterEach
+  void close() {
+    transmitters.stop();
+  }
+
+  boolean isUp(HealthCheckResponse response) {
+    return (Boolean) response.getData().orElseThrow(AssertionError::new).get("chat");
+  }
+
+  // waits for the first refresh, which takes the transmitter down
+  boolean refresh(Transmitters transmitters) {
+    transmitters.onStart(new StartupEvent());
+    for (int i = 0; i < 500 && isUp(transmitters.call()); i++) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    return isUp(transmitters.call());
+  }
+
+  @Test
+  public void testCachedStatus() {
+    when(deck.lastOutcome(eq("chat"), any(Duration.class))).thenReturn(Optional.empty());
+
+    Spec.describe(Transmitters.class)
+
+        .given(transmitters)
+
+        .because("Transmitters not checked yet should be taken as up")
+        .expect(true).from(transmitters -> isUp(transmitters.call()))
+
+        .because("The refresh should ask the transmitters without a recent delivery")
+        .expect(false).from(this::refresh)
+
+        .because("Probes should only read the last results")
+        .expect(false).from(transmitters -> isUp(transmitters.call()))
+        .expect(false).from(transmitters -> isUp(transmitters.call()));
+
+    verify(transmitter, times(1)).isUp();
+  }
+
+  @Test
+  public void testRecentDeliveries() {
+    when(deck.lastOutcome(eq("chat"), any(Duration.class))).thenReturn(Optional.of(false));
+    when(transmitter.isUp()).thenReturn(true);
+
+    Spec.describe(Transmitters.class)
+
+        .given(transmitters)
+
+        .because("Transmitters with a recent delivery should be judged by its outcome")
+        .expect(false).from(this::refresh)
+        .expect(false).from(transmitters -> isUp(transmitters.call()));
+
+    verify(transmitter, never()).isUp();
+  }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.backpackcloud.captain_hook.impl;
+
+import freemarker.template.Configuration;
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.BatchSettings;
+import io.backpackcloud.captain_hook.Cannon;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+public class BatchingCannonTest {
+
+  TemplateEngine templateEngine = new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 10);
+  BatchScheduler scheduler = new BatchScheduler();
+
+  Map payload = templateEngine.compile(Collections.singletonMap("text", "${message}"));
+  Map headers = templateEngine.compile(Collections.singletonMap("X-Priority", "${priority}"));
+  TemplateEngine.CompiledTemplate url = templateEngine.compile("http://localhost/${target}");
+
+  // the batches fired by the inner cannon, as "url headers [messages]"
+  List<String> shots = new CopyOnWriteArrayList<>();
+  List<String> threads = new CopyOnWriteArrayList<>();
+  boolean failing;
+
+  Cannon cannon = new Cannon() {
+    @Override
+    public LoadedCannon load(Notification notification) {
+      return load(Collections.singletonList(notification));
+    }
+
+    @Override
+    public LoadedCannon load(List<Notification> notifications) {
+      return new LoadedCannon() {
+        Map<String, ?> headers = Collections.emptyMap();
+
+        @Override
+        public LoadedCannon add(Map<String, ?> headers) {
+          this.headers = headers;
+          return this;
+        }
+
+        @Override
+        public ReadyCannon aimAt(String url) {
+          throw new AssertionError("The url should not be compiled again");
+        }
+
+        @Override
+        public ReadyCannon aimAt(TemplateEngine.CompiledTemplate url) {
+          return body -> {
+            Map<String, ?> context = notifications.get(0).context();
+            shots.add(url.evaluate(context) + " " + templateEngine.evaluate(headers, context) + " " +
+                notifications.stream().map(Notification::message).collect(Collectors.toList()));
+            threads.add(Thread.currentThread().getName());
+            if (failing) {
+              throw new RuntimeException("Connection refused");
+            }
+            return response;
+          };
+        }
+      };
+    }
+  };
+
+  Cannon.Response response = new Cannon.Response() {
+    @Override
+    public int status() {
+      return 200;
+    }
+
+    @Override
+    public String message() {
+      return "OK";
+    }
+  };
+
+  @AfterEach
+  void close() {
+    scheduler.close();
+  }
+
+  @Test
+  public void testMaxSize() {
+    Spec.describe(BatchingCannon.class)
+
+        .given(new BatchingCannon(cannon, new BatchSettings(2, 60_000L), templateEngine, scheduler))
+
+        .because("Batches should wait until they are full")
+        .expect(false).from(batching -> fire(batching, "chat:me", "one").isDone())
+        .expect(Collections.emptyList()).from(batching -> shots)
+
+        .because("Full batches should be fired right away")
+        .expect(response).from(batching -> fire(batching, "chat:me", "two").join())
+        .expect(Collections.singletonList("http://localhost/me {X-Priority=NORMAL} [one, two]")).from(batching -> shots)
+        .expect(Collections.singletonList("batch-sender")).from(batching -> threads)
+
+        .because("A new batch should be opened after a full one")
+        .expect(false).from(batching -> fire(batching, "chat:me", "three").isDone())
+
+        .because("Open batches should be fired when the scheduler is closed")
+        .expect(Arrays.asList(
+            "http://localhost/me {X-Priority=NORMAL} [one, two]",
+            "http://localhost/me {X-Priority=NORMAL} [three]"))
+        .from(batching -> {
+          scheduler.close();
+          return shots;
+        });
+  }
+
+  @Test
+  public void testMaxLinger() {
+    Spec.describe(BatchingCannon.class)
+
+        .given(new BatchingCannon(cannon, new BatchSettings(10, 50L), templateEngine, scheduler))
+
+        .because("Batches should be fired after their maximum linger")
+        .expect(response).from(batching -> fire(batching, "chat:me", "one").join())
+        .expect(Collections.singletonList("http://localhost/me {X-Priority=NORMAL} [one]")).from(batching -> shots);
+  }
+
+  @Test
+  public void testTargets() {
+    Spec.describe(BatchingCannon.class)
+
+        .given(new BatchingCannon(cannon, new BatchSettings(2, 60_000L), templateEngine, scheduler))
+
+        .because("Notifications to different urls should not share a batch")
+        .expect(Collections.emptyList()).from(batching -> {
+          fire(batching, "chat:me", "one");
+          fire(batching, "chat:you", "two");
+          return shots;
+        })
+
+        .because("Notifications with different headers should not share a batch")
+        .expect(Collections.emptyList()).from(batching -> {
+          fire(batching, "chat:me", "three", Priority.HIGH);
+          return shots;
+        })
+
+        .because("Notifications to the same url with the same headers should share a batch")
+        .expect(Collections.singletonList("http://localhost/me {X-Priority=NORMAL} [one, four]"))
+        .from(batching -> {
+          fire(batching, "chat:me", "four").join();
+          return shots;
+        })
+
+        .because("Evaluated urls should not be evaluated again")
+        .expect("http://localhost/${title} {X-Priority=NORMAL} [five, six]")
+        .from(batching -> {
+          fire(batching, "chat:${title}", "five");
+          fire(batching, "chat:${title}", "six").join();
+          return shots.get(1);
+        });
+  }
+
+  @Test
+  public void testFailures() {
+    failing = true;
+
+    Spec.describe(BatchingCannon.class)
+
+        .given(new BatchingCannon(cannon, new BatchSettings(2, 60_000L), templateEngine, scheduler))
+
+        .because("Every notification should see the failure of its batch")
+        .expect(Arrays.asList(true, true)).from(batching -> {
+          CompletableFuture<Cannon.Response> first = fire(batching, "chat:me", "one");
+          CompletableFuture<Cannon.Response> second = fire(batching, "chat:me", "two");
+          second.exceptionally(failure -> null).join();
+          return Arrays.asList(first.isCompletedExceptionally(), second.isCompletedExceptionally());
+        });
+  }
+
+  private CompletableFuture<Cannon.Response> fire(BatchingCannon batching, String address, String message) {
+    return fire(batching, address, message, Priority.NORMAL);
+  }
+
+  private CompletableFuture<Cannon.Response> fire(BatchingCannon batching, String address, String message,
+                                                  Priority priority) {
+    Notification notification = new Notification(null, message, null,
+        Address.fromString(address), priority, LabelSet.empty());
+    return batching.load(notification)
+        .add(headers)
+        .aimAt(url)
+        .fireAsync(payload)
+        .toCompletableFuture();
+  }
+
+}
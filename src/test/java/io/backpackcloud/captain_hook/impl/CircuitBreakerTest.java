@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.CircuitBreakerSettings;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.backpackcloud.captain_hook.impl.CircuitBreaker.State.CLOSED;
+import static io.backpackcloud.captain_hook.impl.CircuitBreaker.State.HALF_OPEN;
+import static io.backpackcloud.captain_hook.impl.CircuitBreaker.State.OPEN;
+
+public class CircuitBreakerTest {
+
+  AtomicLong clock = new AtomicLong();
+
+  CircuitBreakerSettings settings = new CircuitBreakerSettings(4, 4, 0.5, 10, 1);
+
+  CircuitBreaker.State deliver(CircuitBreaker circuit, boolean works) {
+    if (circuit.tryAcquire()) {
+      if (works) {
+        circuit.onSuccess();
+      } else {
+        circuit.onFailure();
+      }
+    }
+    return circuit.state();
+  }
+
+  boolean deliver(CircuitBreakers circuits, String address, boolean works) {
+    Notification notification = new Notification(null, "message", null,
+        Address.fromString(address), Priority.NORMAL, LabelSet.empty());
+    if (!circuits.tryAcquire(notification)) return false;
+    if (works) {
+      circuits.onSuccess(notification);
+    } else {
+      circuits.onFailure(notification);
+    }
+    return true;
+  }
+
+  @Test
+  public void testStates() {
+    Spec.describe(CircuitBreaker.class)
+
+        .given(new CircuitBreaker(settings, clock::get))
+        .expect(CLOSED).from(circuit -> deliver(circuit, false))
+        .expect(CLOSED).from(circuit -> deliver(circuit, true))
+        .expect(CLOSED).from(circuit -> deliver(circuit, true))
+
+        .because("The circuit should open when the failure rate reaches the threshold")
+        .expect(OPEN).from(circuit -> deliver(circuit, false))
+        .expect(false).from(CircuitBreaker::tryAcquire)
+
+        .because("The circuit should allow a probe after the open duration")
+        .expect(true).from(circuit -> {
+          clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+          return circuit.tryAcquire();
+        })
+        .expect(HALF_OPEN).from(CircuitBreaker::state)
+        .expect(false).from(CircuitBreaker::tryAcquire)
+
+        .because("A failed probe should open the circuit again")
+        .expect(OPEN).from(circuit -> {
+          circuit.onFailure();
+          return circuit.state();
+        })
+
+        .because("A probe that works should close the circuit")
+        .expect(CLOSED).from(circuit -> {
+          clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+          return deliver(circuit, true);
+        });
+  }
+
+  @Test
+  public void testWindow() {
+    Spec.describe(CircuitBreaker.class)
+
+        .given(new CircuitBreaker(settings, clock::get))
+        .expect(CLOSED).from(circuit -> deliver(circuit, false))
+        .expect(CLOSED).from(circuit -> deliver(circuit, true))
+        .expect(CLOSED).from(circuit -> deliver(circuit, true))
+        .expect(CLOSED).from(circuit -> deliver(circuit, true))
+
+        .because("Old outcomes should leave the window")
+        .expect(CLOSED).from(circuit -> deliver(circuit, false))
+        .expect(OPEN).from(circuit -> deliver(circuit, false));
+  }
+
+  @Test
+  public void testTargets() {
+    ChannelSettings channelSettings = new ChannelSettings(null, null, null, null, null, null, null, settings);
+
+    Spec.describe(CircuitBreakers.class)
+
+        .given(new CircuitBreakers(channelSettings, clock::get))
+
+        .because("Each target should have its own circuit")
+        .expect(3).from(circuits -> {
+          deliver(circuits, "chat:me", true);
+          deliver(circuits, "chat:you", true);
+          for (int i = 0; i < 4; i++) {
+            deliver(circuits, "chat:them", false);
+          }
+          return circuits.targets();
+        })
+        .expect(false).from(circuits -> deliver(circuits, "chat:them", true))
+
+        .because("Closed circuits not used for a while should be dropped, unlike the open ones")
+        .expect(2).from(circuits -> {
+          clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+          deliver(circuits, "chat:me", true);
+          return circuits.targets();
+        })
+
+        .because("Circuits should only be dropped from time to time")
+        .expect(4).from(circuits -> {
+          deliver(circuits, "chat:you", true);
+          clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+          deliver(circuits, "chat:us", true);
+          return circuits.targets();
+        });
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Event;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DeduplicatorTest {
+
+  AtomicLong clock = new AtomicLong();
+
+  Event event(String message, String delivery) {
+    Map<String, String> labels = new HashMap<>();
+    labels.put("source", "gitlab");
+    labels.put("delivery", delivery);
+    return new Event(LabelSet.of(labels), "push", message, null, null);
+  }
+
+  Event event(String message) {
+    return new Event(LabelSet.of(Collections.singletonMap("source", "gitlab")), "push", message, null, null);
+  }
+
+  long seconds(long seconds) {
+    return clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  @Test
+  public void testWholeEvents() {
+    Spec.describe(Deduplicator.class)
+
+        .given(new Deduplicator(Duration.ofSeconds(60), 10, Collections.emptyList(), clock::get))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(true).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed again", "1")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "2")))
+
+        .because("Events should be forgotten after the window")
+        .expect(true).from(deduplicator -> seconds(59) > 0 && deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(false).from(deduplicator -> seconds(1) > 0 && deduplicator.isDuplicate(event("pushed", "1")));
+  }
+
+  @Test
+  public void testLabels() {
+    Spec.describe(Deduplicator.class)
+
+        .given(new Deduplicator(Duration.ofSeconds(60), 10, Collections.singletonList("delivery"), clock::get))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+
+        .because("Only the name and the given labels should identify an event")
+        .expect(true).from(deduplicator -> deduplicator.isDuplicate(event("pushed again", "1")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "2")))
+
+        .because("Events without the given labels should be identified by the whole event")
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed again")))
+        .expect(true).from(deduplicator -> deduplicator.isDuplicate(event("pushed")));
+  }
+
+  @Test
+  public void testLimits() {
+    Spec.describe(Deduplicator.class)
+
+        .given(new Deduplicator(Duration.ofSeconds(60), 2, Collections.emptyList(), clock::get))
+        .because("The oldest events should be forgotten when the cache is full")
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "2")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "3")))
+        .expect(2).from(Deduplicator::size)
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+
+        .given(new Deduplicator(Duration.ZERO, 2, Collections.emptyList(), clock::get))
+        .because("Events should not be deduplicated without a window")
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(false).from(deduplicator -> deduplicator.isDuplicate(event("pushed", "1")))
+        .expect(0).from(Deduplicator::size);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DeliveryLogTest {
+
+  AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  Duration within = Duration.ofSeconds(30);
+
+  Optional<Boolean> deliver(DeliveryLog log, boolean worked) {
+    log.record("chat", worked);
+    return log.lastOutcome("chat", within);
+  }
+
+  void elapse(int seconds) {
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  @Test
+  public void testOutcomes() {
+    Spec.describe(DeliveryLog.class)
+
+        .given(new DeliveryLog(clock::get))
+
+        .because("Channels without deliveries should have no outcome")
+        .expect(Optional.empty()).from(log -> log.lastOutcome("chat", within))
+
+        .because("A recent delivery that worked should be the outcome")
+        .expect(Optional.of(true)).from(log -> deliver(log, true))
+
+        .because("The newest delivery should win over an older one")
+        .expect(Optional.of(false)).from(log -> {
+          elapse(1);
+          return deliver(log, false);
+        })
+        .expect(Optional.of(true)).from(log -> {
+          elapse(1);
+          return deliver(log, true);
+        })
+
+        .because("Each channel should have its own outcome")
+        .expect(Optional.empty()).from(log -> log.lastOutcome("mail", within));
+  }
+
+  @Test
+  public void testFailures() {
+    Spec.describe(DeliveryLog.class)
+
+        .given(new DeliveryLog(clock::get))
+
+        .because("A recent delivery that failed should be the outcome")
+        .expect(Optional.of(false)).from(log -> deliver(log, false))
+
+        .because("A failure should win over a success that is too old")
+        .expect(Optional.of(false)).from(log -> {
+          elapse(1);
+          log.record("chat", true);
+          elapse(30);
+          return deliver(log, false);
+        });
+  }
+
+  @Test
+  public void testExpiredOutcomes() {
+    Spec.describe(DeliveryLog.class)
+
+        .given(new DeliveryLog(clock::get))
+
+        .because("Deliveries older than the given time should not be the outcome")
+        .expect(Optional.empty()).from(log -> {
+          deliver(log, true);
+          elapse(1);
+          deliver(log, false);
+          elapse(30);
+          return log.lastOutcome("chat", within);
+        })
+
+        .because("Older deliveries might still be recent for a longer time")
+        .expect(Optional.of(false)).from(log -> log.lastOutcome("chat", Duration.ofMinutes(1)));
+  }
+
+}
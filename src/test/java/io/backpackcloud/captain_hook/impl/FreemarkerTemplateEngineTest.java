@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import freemarker.template.Configuration;
+import io.backpackcloud.captain_hook.UnbelievableException;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+public class FreemarkerTemplateEngineTest {
+
+  Map<String, ?> context = Collections.singletonMap("name", "World");
+
+  @Test
+  public void testCache() {
+    Spec.describe(FreemarkerTemplateEngine.class)
+
+        .given(new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 2))
+        .expect("Hello World").from(engine -> engine.evaluate("Hello ${name}", context))
+        .expect(0L).from(FreemarkerTemplateEngine::cacheHits)
+        .expect(1L).from(FreemarkerTemplateEngine::cacheMisses)
+
+        .because("Parsed templates should be reused")
+        .expect("Hello World").from(engine -> engine.evaluate("Hello ${name}", context))
+        .expect(1L).from(FreemarkerTemplateEngine::cacheHits)
+        .expect(1L).from(FreemarkerTemplateEngine::cacheMisses)
+
+        .because("The cache should not grow beyond its limit")
+        .expect("Bye World").from(engine -> engine.evaluate("Bye ${name}", context))
+        .expect("Hi World").from(engine -> engine.evaluate("Hi ${name}", context))
+        .expect(2).from(FreemarkerTemplateEngine::cacheSize)
+
+        .because("Broken templates should not be accepted")
+        .expect(UnbelievableException.class).when(engine -> engine.evaluate("${name", context));
+  }
+
+  @Test
+  public void testLiterals() {
+    Spec.describe(FreemarkerTemplateEngine.class)
+
+        .given(new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 2))
+
+        .because("Strings without interpolations or directives should be literals")
+        .expect(true).from(engine -> engine.isLiteral("Hello World"))
+        .expect(true).from(engine -> engine.compile("Hello World").isLiteral())
+        .expect(false).from(engine -> engine.isLiteral("Hello ${name}"))
+        .expect(false).from(engine -> engine.isLiteral("<#if name??>Hello</#if>"))
+        .expect(false).from(engine -> engine.compile("Hello ${name}").isLiteral())
+
+        .because("Literals should not depend on a context")
+        .expect("Hello World").from(engine -> engine.evaluate("Hello World", null))
+        .expect(true).from(engine -> engine.isLiteral(Collections.singletonMap("greeting", "Hello")))
+        .expect(false).from(engine -> engine.isLiteral(Collections.singletonMap("greeting", "Hello ${name}")));
+  }
+
+  @Test
+  public void testVariables() {
+    Spec.describe(FreemarkerTemplateEngine.class)
+
+        .given(new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 2))
+
+        .expect(Optional.of(Collections.emptySet())).from(engine -> engine.variables("Hello World"))
+        .expect(true).from(engine -> engine.variables("Hello ${person.name}").get()
+            .containsAll(new HashSet<>(Arrays.asList("person", "name"))))
+
+        .because("Variables reached without their names can't be known")
+        .expect(Optional.empty()).from(engine -> engine.variables("Hello ${.vars[\"name\"]}"))
+        .expect(Optional.empty()).from(engine -> engine.variables("hello.ftl"));
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+public class JournalTest {
+
+  Notification notification = new Notification("title", "message", null, Address.fromString("chat:me"),
+      Priority.HIGH, LabelSet.of(Collections.singletonMap("env", "prod")));
+
+  @Test
+  public void testFormat() {
+    Spec.describe(NotificationFormat.class)
+        .expect(notification).from(format -> NotificationFormat.decode(NotificationFormat.encode(notification)))
+        .expect(notification.labels()).from(format ->
+            NotificationFormat.decode(NotificationFormat.encode(notification)).labels());
+  }
+
+  @Test
+  public void testJournal() throws IOException {
+    Path dir = Files.createTempDirectory("journal");
+    Journal journal = new Journal(dir, 64);
+    for (int i = 0; i < 10; i++) {
+      journal.sync(journal.append(("record " + i).getBytes()));
+    }
+
+    Spec.describe(Journal.class)
+
+        .given(journal)
+        .expect("record 0").from(j -> new String(j.read(0).data()))
+        .expect(true).from(j -> j.read(j.offset()) == null)
+
+        .because("Records should not span segments")
+        .expect(64L).from(j -> j.read(j.read(j.read(j.read(0).next()).next()).next()).next())
+
+        .because("Acknowledged segments should be deleted")
+        .expect(3).from(j -> {
+          j.acknowledge(64);
+          return dir.toFile().list().length;
+        });
+
+    journal.close();
+
+    Spec.describe(Journal.class)
+
+        .given(new Journal(dir, 64))
+        .because("Reading should start from the acknowledged offset after reopening")
+        .expect(64L).from(Journal::acknowledged)
+        .expect("record 4").from(j -> new String(j.read(j.acknowledged()).data()))
+        .expect(160L).from(Journal::offset);
+  }
+
+  @Test
+  public void testFailedDeliveries() throws IOException {
+    AtomicInteger attempts = new AtomicInteger();
+    JournalPlank plank = new JournalPlank(new Journal(Files.createTempDirectory("outbox"), 1024), n -> {
+      switch (attempts.incrementAndGet()) {
+        case 1:
+          throw new IllegalStateException("The deck is not ready");
+        case 2:
+          return CompletableFuture.failedFuture(new IllegalStateException("The channel is full"));
+        default:
+          return CompletableFuture.completedFuture(null);
+      }
+    }, 10);
+    plank.walk(notification);
+
+    Spec.describe(JournalPlank.class)
+
+        .given(plank)
+        .because("Notifications should not be acknowledged while the deck fails to take them")
+        .expect(true).from(p -> p.backlog() > 0)
+
+        .because("Notifications should be passed to the deck again until it takes them")
+        .expect(0L).from(p -> await(p::backlog))
+        .expect(3).from(p -> attempts.get());
+
+    plank.close();
+  }
+
+  private static long await(LongSupplier backlog) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (backlog.getAsLong() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.onSpinWait();
+    }
+    return backlog.getAsLong();
+  }
+
+}
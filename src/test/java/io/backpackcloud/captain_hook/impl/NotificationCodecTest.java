@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.spectaculous.Spec;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+public class NotificationCodecTest {
+
+  Notification notification = new Notification("title", "message", null, Address.fromString("chat:me"),
+      Priority.HIGH, LabelSet.of(Collections.singletonMap("env", "prod")));
+
+  // other messages might come before the notification in the same buffer
+  byte[] preceding = "preceding bytes".getBytes();
+
+  Notification roundTrip(NotificationCodec codec, Buffer buffer) {
+    buffer.appendBytes(preceding);
+    codec.encodeToWire(buffer, notification);
+    return codec.decodeFromWire(preceding.length, buffer);
+  }
+
+  @Test
+  public void testWire() {
+    Spec.describe(NotificationCodec.class)
+
+        .given(new NotificationCodec())
+
+        .because("Notifications should be read from their position in heap buffers")
+        .expect(notification).from(codec -> roundTrip(codec, Buffer.buffer()))
+        .expect(notification.labels()).from(codec -> roundTrip(codec, Buffer.buffer()).labels())
+
+        .because("Notifications should be read from their position in direct buffers")
+        .expect(notification).from(codec -> roundTrip(codec, Buffer.buffer(Unpooled.directBuffer())))
+        .expect(notification.labels()).from(codec ->
+            roundTrip(codec, Buffer.buffer(Unpooled.directBuffer())).labels());
+  }
+
+  @Test
+  public void testTransform() {
+    Spec.describe(NotificationCodec.class)
+
+        .given(new NotificationCodec())
+
+        .because("Local notifications should be passed by reference")
+        .expect(true).from(codec -> codec.transform(notification) == notification);
+  }
+
+}
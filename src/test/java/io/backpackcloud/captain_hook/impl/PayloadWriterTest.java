@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import freemarker.template.Configuration;
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Mapper;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.TemplateEngine;
+import io.backpackcloud.captain_hook.cdi.SerializerProducer;
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class PayloadWriterTest {
+
+  TemplateEngine templateEngine = new FreemarkerTemplateEngine(new Configuration(Configuration.VERSION_2_3_29), 10);
+  Mapper mapper = new SerializerProducer().get(templateEngine, null, null, null).json();
+
+  Map<String, ?> context = Collections.singletonMap("name", "World");
+
+  List<Notification> notifications = Arrays.asList(
+      new Notification("Deploy", "It worked", null, Address.fromString("chat:me"), Priority.HIGH, LabelSet.empty()),
+      new Notification("Build", "It broke", null, Address.fromString("chat:you"), Priority.LOW, LabelSet.empty()));
+
+  @Test
+  public void testRendering() {
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("text", "Hello \"${name}\"");
+    payload.put("count", 3);
+    payload.put("tags", Arrays.asList("a", "b"));
+    payload.put("missing", null);
+    Map compiled = templateEngine.compile(payload);
+
+    Spec.describe(PayloadWriter.class)
+
+        .given(new PayloadWriter(templateEngine, mapper))
+
+        .because("Rendered payloads should be the same as the serialized evaluation")
+        .expect(mapper.deserialize(mapper.serialize(templateEngine.evaluate(compiled, context))))
+        .from(writer -> mapper.deserialize(new String(writer.render(compiled, context), StandardCharsets.UTF_8)))
+        .expect(mapper.deserialize(mapper.serialize(templateEngine.evaluate(payload, context))))
+        .from(writer -> mapper.deserialize(new String(writer.render(payload, context), StandardCharsets.UTF_8)))
+
+        .because("Templates should be escaped")
+        .expect("Hello \"World\"")
+        .from(writer -> mapper.deserialize(new String(writer.render(compiled, context), StandardCharsets.UTF_8)).get("text"))
+
+        .because("Null values should be left out")
+        .expect(false)
+        .from(writer -> new String(writer.render(compiled, context), StandardCharsets.UTF_8).contains("missing"));
+  }
+
+  @Test
+  public void testArrays() {
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("text", "${title}: \"${message}\"");
+    payload.put("to", "${target}");
+    payload.put("count", 3);
+    Map compiled = templateEngine.compile(payload);
+    Map literal = templateEngine.compile(Collections.singletonMap("text", "Something happened"));
+
+    Spec.describe(PayloadWriter.class)
+
+        .given(new PayloadWriter(templateEngine, mapper))
+
+        .because("The payload should be rendered for each notification")
+        .expect(evaluate(compiled))
+        .from(writer -> mapper.deserialize(writer.render(compiled, notifications), List.class))
+        .expect(evaluate(compiled))
+        .from(writer -> {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          writer.write(compiled, notifications, out);
+          return mapper.deserialize(out.toByteArray(), List.class);
+        })
+
+        .because("Literal payloads should be the same for every notification")
+        .expect(true).from(writer -> templateEngine.isLiteral(literal))
+        .expect(evaluate(literal))
+        .from(writer -> mapper.deserialize(writer.render(literal, notifications), List.class));
+  }
+
+  // what the payload looked like when it was evaluated and serialized for each notification
+  private List evaluate(Map payload) {
+    return mapper.deserialize(mapper.serialize(notifications.stream()
+        .map(notification -> templateEngine.evaluate(payload, notification.context()))
+        .collect(Collectors.toList())), List.class);
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.DeliveryException;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.RetrySettings;
+import io.backpackcloud.spectaculous.Spec;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class RetrierTest {
+
+  Notification notification = new Notification(null, "failed", null,
+      Address.fromString("http:hook"), Priority.NORMAL, LabelSet.empty());
+
+  List<Long> delays = new ArrayList<>();
+  List<Integer> attempts = new ArrayList<>();
+  List<Notification> deadLetters = new ArrayList<>();
+
+  // runs the tasks right away, just taking note of the delays
+  Timer timer = new Timer() {
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+      delays.add(unit.toMillis(delay));
+      try {
+        task.run(null);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      return null;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+      return null;
+    }
+  };
+
+  RetrySettings settings = new RetrySettings(3, 1000L, 1500L, 2.0, 0.0, null);
+
+  Retrier retrier = new Retrier("http", settings, timer,
+      (notification, attempt) -> {
+        attempts.add(attempt);
+        return CompletableFuture.completedFuture(null);
+      },
+      notification -> {
+        deadLetters.add(notification);
+        return CompletableFuture.completedFuture(null);
+      });
+
+  @Test
+  public void testDelays() {
+    Spec.describe(RetrySettings.class)
+
+        .given(settings)
+        .expect(1000L).from(retry -> retry.delayBefore(2, 0.5).toMillis())
+        .because("The delay should not grow beyond the maximum")
+        .expect(1500L).from(retry -> retry.delayBefore(3, 0.5).toMillis())
+
+        .given(new RetrySettings(3, 1000L, 60000L, 2.0, 0.5, null))
+        .expect(4000L).from(retry -> retry.delayBefore(4, 0).toMillis())
+        .because("The jitter should shorten the delay")
+        .expect(3000L).from(retry -> retry.delayBefore(4, 0.5).toMillis());
+  }
+
+  @Test
+  public void testRetries() {
+    Spec.describe(Retrier.class)
+
+        .given(retrier)
+        .expect(Arrays.asList(2)).from(retrier -> {
+          retrier.failed(notification, 1, new DeliveryException("Got HTTP Status 503", true));
+          return attempts;
+        })
+        .expect(Arrays.asList(1000L)).from(retrier -> delays)
+
+        .because("Notifications should go to the dead letters after the last attempt")
+        .expect(Arrays.asList(notification)).from(retrier -> {
+          retrier.failed(notification, 3, new DeliveryException("Got HTTP Status 503", true));
+          return deadLetters;
+        })
+        .expect(1).from(retrier -> attempts.size())
+
+        .because("Failures that won't go away should not be retried")
+        .expect(2).from(retrier -> {
+          retrier.failed(notification, 1, DeliveryException.forStatus(400));
+          return deadLetters.size();
+        })
+        .expect(1).from(retrier -> attempts.size());
+  }
+
+}
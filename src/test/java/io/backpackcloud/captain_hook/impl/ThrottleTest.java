@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.captain_hook.Address;
+import io.backpackcloud.captain_hook.ChannelSettings;
+import io.backpackcloud.captain_hook.LabelSet;
+import io.backpackcloud.captain_hook.Notification;
+import io.backpackcloud.captain_hook.Priority;
+import io.backpackcloud.captain_hook.RateSettings;
+import io.backpackcloud.spectaculous.Spec;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThrottleTest {
+
+  AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  List<Address> fired = new ArrayList<>();
+  List<Long> delays = new ArrayList<>();
+  List<TimerTask> scheduled = new ArrayList<>();
+  int resumed;
+
+  // keeps the tasks to run them when the test says so
+  Timer timer = new Timer() {
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+      delays.add(unit.toMillis(delay));
+      scheduled.add(task);
+      return null;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+      return null;
+    }
+  };
+
+  @Test
+  public void testTargetBuckets() {
+    ChannelSettings settings = new ChannelSettings(null, null, null,
+        null, new RateSettings(10.0, 5));
+
+    Spec.describe(Throttle.class)
+
+        .given(new Throttle(settings, timer, clock::get))
+
+        .because("Each target should have its own bucket")
+        .expect(2).from(throttle -> {
+          pace(throttle, "chat:me");
+          pace(throttle, "chat:you");
+          return throttle.targets();
+        })
+
+        .because("Buckets that are full again should be dropped, unlike the ones in use")
+        .expect(1).from(throttle -> {
+          clock.addAndGet(60_000_000_000L);
+          pace(throttle, "chat:me");
+          return throttle.targets();
+        })
+
+        .because("Buckets should only be dropped from time to time")
+        .expect(3).from(throttle -> {
+          pace(throttle, "chat:you");
+          clock.addAndGet(1_000_000_000L);
+          pace(throttle, "chat:them");
+          return throttle.targets();
+        });
+  }
+
+  @Test
+  public void testLongWaits() {
+    ChannelSettings settings = new ChannelSettings(null, null, null,
+        new RateSettings(1.0, 1), new RateSettings(0.5, 1));
+    List<CompletableFuture<Void>> waiting = new ArrayList<>();
+
+    Spec.describe(Throttle.class)
+
+        .given(new Throttle(settings, timer, clock::get))
+
+        .because("Notifications within the rates should be fired right away")
+        .expect(Collections.singletonList(Address.fromString("chat:me"))).from(throttle -> {
+          pace(throttle, "chat:me");
+          return fired;
+        })
+
+        .because("Notifications waiting for their target should not hold the thread")
+        .expect(Collections.singletonList(1000L)).from(throttle -> {
+          clock.addAndGet(1_000_000_000L);
+          waiting.add(pace(throttle, "chat:me"));
+          return delays;
+        })
+        .expect(false).from(throttle -> waiting.get(0).isDone())
+
+        .because("Notifications waiting for their target should not spend the tokens of the channel")
+        .expect(Arrays.asList(Address.fromString("chat:me"), Address.fromString("chat:you"))).from(throttle -> {
+          pace(throttle, "chat:you");
+          return fired;
+        })
+
+        .because("Notifications should be handed back to the channel after waiting")
+        .expect(Arrays.asList(Address.fromString("chat:me"), Address.fromString("chat:you"),
+            Address.fromString("chat:me"))).from(throttle -> {
+          clock.addAndGet(1_000_000_000L);
+          runScheduled();
+          return fired;
+        })
+        .expect(1).from(throttle -> resumed)
+        .expect(true).from(throttle -> waiting.get(0).isDone());
+  }
+
+  private CompletableFuture<Void> pace(Throttle throttle, String address) {
+    Notification notification = new Notification(null, "message", null,
+        Address.fromString(address), Priority.NORMAL, LabelSet.empty());
+    return throttle.pace(notification,
+        () -> {
+          fired.add(notification.destination());
+          return CompletableFuture.completedFuture(null);
+        },
+        task -> {
+          resumed++;
+          return task.get();
+        }).toCompletableFuture();
+  }
+
+  private void runScheduled() {
+    List<TimerTask> tasks = new ArrayList<>(scheduled);
+    scheduled.clear();
+    for (TimerTask task : tasks) {
+      try {
+        task.run(null);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+}
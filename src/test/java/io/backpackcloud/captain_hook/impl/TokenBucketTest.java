@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 Marcelo Guimarães <ataxexe@backpackcloud.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.backpackcloud.captain_hook.impl;
+
+import io.backpackcloud.spectaculous.Spec;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketTest {
+
+  AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  @Test
+  public void test() {
+    Spec.describe(TokenBucket.class)
+
+        .given(new TokenBucket(10, 2, clock::get))
+
+        .because("A full bucket should allow a burst without waiting")
+        .expect(0L).from(TokenBucket::reserve)
+        .expect(0L).from(TokenBucket::reserve)
+
+        .because("Callers should be paced after the burst")
+        .expect(100_000_000L).from(TokenBucket::reserve)
+        .expect(200_000_000L).from(TokenBucket::reserve)
+
+        .because("The bucket should be full again after a quiet period")
+        .expect(0L).from(bucket -> {
+          clock.addAndGet(5_000_000_000L);
+          return bucket.reserve();
+        })
+        .expect(0L).from(TokenBucket::reserve)
+        .expect(100_000_000L).from(TokenBucket::reserve);
+  }
+
+}